@@ -0,0 +1,65 @@
+package com.example.querydsl.loadtest;
+
+import com.example.querydsl.QuerydslApplication;
+import com.example.querydsl.search.UsernameIndexLoader;
+import com.example.querydsl.stats.TeamStatsService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 같은 JVM 에서 앱을 임베디드(메모리) H2 로 띄우고 회원 데이터를 넣는다.
+ * local 프로파일의 초기 데이터(Init) 대신 JDBC 배치로 members 명을 teams 개 팀에 나눠 넣고,
+ * 이벤트를 거치지 않았으므로 팀 집계와 username 색인은 직접 다시 만든다.
+ */
+final class EmbeddedApp {
+
+    private static final int BATCH = 1_000;
+
+    private EmbeddedApp() {
+    }
+
+    static ConfigurableApplicationContext start(int members, int teams, Map<String, String> appProperties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.profiles.active=loadtest",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                "--logging.level.org.hibernate.SQL=warn"));
+        appProperties.forEach((key, value) -> args.add("--" + key + "=" + value));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .run(args.toArray(String[]::new));
+        seed(context, members, teams);
+        return context;
+    }
+
+    static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    private static void seed(ConfigurableApplicationContext context, int members, int teams) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        List<Object[]> teamRows = new ArrayList<>(teams);
+        for (int i = 0; i < teams; i++) {
+            teamRows.add(new Object[]{(long) i + 1, "team" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into team (team_id, name) values (?, ?)", teamRows);
+
+        List<Object[]> memberRows = new ArrayList<>(BATCH);
+        for (int i = 0; i < members; i++) {
+            memberRows.add(new Object[]{(long) i + 1, "member" + i, i % 100, (long) (i % teams) + 1});
+            if (memberRows.size() == BATCH || i == members - 1) {
+                jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", memberRows);
+                memberRows.clear();
+            }
+        }
+
+        context.getBean(TeamStatsService.class).findAll();
+        context.getBean(UsernameIndexLoader.class).load();
+    }
+}
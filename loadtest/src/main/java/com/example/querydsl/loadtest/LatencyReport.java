@@ -0,0 +1,138 @@
+package com.example.querydsl.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 엔드포인트별 지연 시간 분포. response 는 예정된 시작 시각부터 응답까지(대기 포함, coordinated omission 없음),
+ * service 는 실제로 보낸 시각부터 응답까지다. 두 값의 차이가 크면 부하 발생기나 서버 앞단에서 밀리고 있는 것이다.
+ */
+final class LatencyReport {
+
+    static final String ALL = "all";
+
+    private static final long MAX_TRACKABLE = TimeUnit.SECONDS.toNanos(120);
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final String CSV_HEADER = "label,timestamp,rate,duration_s,endpoint,count,errors,throughput,"
+            + "p50_ms,p90_ms,p99_ms,p999_ms,max_ms,service_p99_ms";
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private volatile long elapsedNanos;
+
+    void record(String endpoint, long responseNanos, long serviceNanos, boolean ok) {
+        stats.computeIfAbsent(endpoint, key -> new Stats()).record(responseNanos, serviceNanos, ok);
+        stats.computeIfAbsent(ALL, key -> new Stats()).record(responseNanos, serviceNanos, ok);
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    void print(PrintStream out, double rate) {
+        out.printf("target %.0f req/s, measured %.1f s%n", rate, elapsedNanos / 1e9);
+        out.printf("%-16s %9s %7s %10s %9s %9s %9s %9s %9s %11s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms");
+        for (Map.Entry<String, Stats> entry : sorted().entrySet()) {
+            Stats s = entry.getValue();
+            out.printf("%-16s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %11.2f%n",
+                    entry.getKey(), s.response.getTotalCount(), s.errors.sum(), throughput(s),
+                    millis(s.response, 50), millis(s.response, 90), millis(s.response, 99), millis(s.response, 99.9),
+                    s.response.getMaxValue() / NANOS_PER_MILLI, millis(s.service, 99));
+        }
+    }
+
+    /**
+     * 커밋끼리 비교할 수 있도록 한 엔드포인트에 한 줄씩 CSV 로 덧붙인다.
+     */
+    void appendCsv(Path file, String label, double rate) {
+        List<String> lines = new ArrayList<>();
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            if (Files.notExists(file)) {
+                lines.add(CSV_HEADER);
+            }
+            String timestamp = Instant.now().toString();
+            for (Map.Entry<String, Stats> entry : sorted().entrySet()) {
+                Stats s = entry.getValue();
+                lines.add(String.join(",", label, timestamp, String.valueOf(rate),
+                        String.format("%.1f", elapsedNanos / 1e9), entry.getKey(),
+                        String.valueOf(s.response.getTotalCount()), String.valueOf(s.errors.sum()),
+                        String.format("%.1f", throughput(s)),
+                        String.format("%.3f", millis(s.response, 50)), String.format("%.3f", millis(s.response, 90)),
+                        String.format("%.3f", millis(s.response, 99)), String.format("%.3f", millis(s.response, 99.9)),
+                        String.format("%.3f", s.response.getMaxValue() / NANOS_PER_MILLI),
+                        String.format("%.3f", millis(s.service, 99))));
+            }
+            Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * HdrHistogram 플로터로 겹쳐 그릴 수 있는 .hgrm(ms 단위) 파일을 엔드포인트별로 쓴다.
+     */
+    void writeHgrm(Path directory, String label) {
+        try {
+            Files.createDirectories(directory);
+            for (Map.Entry<String, Stats> entry : sorted().entrySet()) {
+                String name = label + "-" + entry.getKey().replaceAll("[^A-Za-z0-9]+", "_").replaceAll("^_|_$", "") + ".hgrm";
+                try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(name)), false, StandardCharsets.UTF_8)) {
+                    entry.getValue().response.outputPercentileDistribution(out, NANOS_PER_MILLI);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long count() {
+        Stats all = stats.get(ALL);
+        return all == null ? 0 : all.response.getTotalCount();
+    }
+
+    private Map<String, Stats> sorted() {
+        return new TreeMap<>(stats);
+    }
+
+    private double throughput(Stats s) {
+        return elapsedNanos == 0 ? 0 : s.response.getTotalCount() / (elapsedNanos / 1e9);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+
+    private static final class Stats {
+
+        final Histogram response = new ConcurrentHistogram(MAX_TRACKABLE, 3);
+        final Histogram service = new ConcurrentHistogram(MAX_TRACKABLE, 3);
+        final LongAdder errors = new LongAdder();
+
+        void record(long responseNanos, long serviceNanos, boolean ok) {
+            response.recordValue(Math.min(Math.max(responseNanos, 1), MAX_TRACKABLE));
+            service.recordValue(Math.min(Math.max(serviceNanos, 1), MAX_TRACKABLE));
+            if (!ok) {
+                errors.increment();
+            }
+        }
+    }
+}
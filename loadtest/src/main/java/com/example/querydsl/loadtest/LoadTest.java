@@ -0,0 +1,107 @@
+package com.example.querydsl.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /v1/members, /v2/members 부하 테스트.
+ * <pre>
+ * ./gradlew :loadtest:run --args='--rate 300 --duration 60s --label abc1234'
+ *
+ *   --rate        초당 요청 수 (기본 100)
+ *   --duration    측정 시간 (기본 30s), --warmup 측정 전 버리는 시간 (기본 10s)
+ *   --mix         요청 구성 파일 (기본 classpath:mixes/default.mix, 형식은 RequestMix 참고)
+ *   --members     넣을 회원 수 (기본 100000), --teams 팀 수 (기본 10)
+ *   --base-url    주면 앱을 띄우지 않고 이미 떠 있는 서버로 보낸다
+ *   --app.KEY     앱 설정을 덮어쓴다. 예) --app.querydsl.search.engine=sql
+ *   --label       결과에 남길 이름. 커밋 해시를 주면 커밋끼리 비교하기 좋다 (기본 local)
+ *   --output      결과 CSV (기본 build/loadtest/results.csv, 실행마다 덧붙인다)
+ *   --hgrm-dir    엔드포인트별 .hgrm 을 쓸 디렉터리 (기본 build/loadtest/hgrm)
+ *   --timeout     요청 타임아웃 (기본 30s), --seed 요청 순서를 정하는 난수 시드 (기본 42)
+ * </pre>
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> appProperties = new LinkedHashMap<>();
+        parse(args, options, appProperties);
+
+        double rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+        Duration duration = DurationStyle.detectAndParse(options.getOrDefault("duration", "30s"));
+        Duration warmup = DurationStyle.detectAndParse(options.getOrDefault("warmup", "10s"));
+        Duration timeout = DurationStyle.detectAndParse(options.getOrDefault("timeout", "30s"));
+        String label = options.getOrDefault("label", "local");
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        RequestMix mix = RequestMix.load(options.getOrDefault("mix", "classpath:mixes/default.mix"));
+
+        ConfigurableApplicationContext app = null;
+        try {
+            URI baseUri;
+            if (options.containsKey("base-url")) {
+                baseUri = URI.create(options.get("base-url"));
+            } else {
+                app = EmbeddedApp.start(
+                        Integer.parseInt(options.getOrDefault("members", "100000")),
+                        Integer.parseInt(options.getOrDefault("teams", "10")),
+                        appProperties);
+                baseUri = URI.create("http://localhost:" + EmbeddedApp.port(app));
+            }
+
+            System.out.printf("load test %s: %.0f req/s for %s (warmup %s), %s threads%n", baseUri, rate, duration, warmup,
+                    OpenModelRunner.virtualThreads() ? "virtual" : "platform");
+            try (OpenModelRunner runner = new OpenModelRunner(baseUri, mix, rate, timeout, seed)) {
+                if (!warmup.isZero()) {
+                    runner.run(warmup);
+                }
+                LatencyReport report = runner.run(duration);
+
+                report.print(System.out, rate);
+                report.appendCsv(Path.of(options.getOrDefault("output", "build/loadtest/results.csv")), label, rate);
+                report.writeHgrm(Path.of(options.getOrDefault("hgrm-dir", "build/loadtest/hgrm")), label);
+            }
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+        }
+    }
+
+    /**
+     * --key value 와 --key=value 를 모두 받는다. --app. 으로 시작하는 키는 앱 설정으로 넘긴다.
+     */
+    static void parse(String[] args, Map<String, String> options, Map<String, String> appProperties) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("unexpected argument: " + arg);
+            }
+            String key = arg.substring(2);
+            String value;
+            int eq = key.indexOf('=');
+            if (eq >= 0) {
+                value = key.substring(eq + 1);
+                key = key.substring(0, eq);
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("missing value for --" + key);
+            }
+
+            if (key.startsWith("app.")) {
+                appProperties.put(key.substring("app.".length()), value);
+            } else {
+                options.put(key, value);
+            }
+        }
+    }
+}
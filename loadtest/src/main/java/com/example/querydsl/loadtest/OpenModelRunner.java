@@ -0,0 +1,130 @@
+package com.example.querydsl.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 열린 모델(open model) 부하 발생기. 요청 i 는 응답을 기다리지 않고 start + i / rate 에 보낸다.
+ * 지연 시간은 그 예정 시각부터 재므로, 서버가 느려져서 요청이 늦게 나가더라도 늦어진 만큼이 지연에 들어간다(coordinated omission 없음).
+ * <p>
+ * 요청마다 스레드 하나에서 동기 send 를 한다. JDK 21 이상이면 가상 스레드를 쓰고, 아니면 캐시 스레드 풀로 대신한다.
+ */
+final class OpenModelRunner implements AutoCloseable {
+
+    private final URI baseUri;
+    private final RequestMix mix;
+    private final double rate;
+    private final Duration timeout;
+    private final SplittableRandom random;
+    private final ExecutorService executor;
+    private final HttpClient client;
+
+    OpenModelRunner(URI baseUri, RequestMix mix, double rate, Duration timeout, long seed) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be positive");
+        }
+        this.baseUri = baseUri;
+        this.mix = mix;
+        this.rate = rate;
+        this.timeout = timeout;
+        this.random = new SplittableRandom(seed);
+        this.executor = newPerRequestExecutor();
+        this.client = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    static boolean virtualThreads() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    LatencyReport run(Duration duration) throws InterruptedException {
+        LatencyReport report = new LatencyReport();
+        AtomicLong inFlight = new AtomicLong();
+        long intervalNanos = Math.max(1, (long) (1_000_000_000L / rate));
+        long total = duration.toNanos() / intervalNanos;
+
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            RequestMix.Request request = mix.next(random);
+            inFlight.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    send(request, intended, report);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+
+        // 마지막 예정 시각 이후에 보낸 요청의 응답까지 기다린다.
+        long deadline = System.nanoTime() + timeout.toNanos() * 2;
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        if (inFlight.get() > 0) {
+            System.err.println("gave up waiting for " + inFlight.get() + " in-flight requests");
+        }
+        report.finish(Math.max(System.nanoTime() - start, duration.toNanos()));
+        return report;
+    }
+
+    private void send(RequestMix.Request request, long intended, LatencyReport report) {
+        long sent = System.nanoTime();
+        boolean ok;
+        try {
+            HttpResponse<Void> response = client.send(
+                    HttpRequest.newBuilder(baseUri.resolve(request.path())).timeout(timeout).GET().build(),
+                    HttpResponse.BodyHandlers.discarding());
+            ok = response.statusCode() == 200;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ok = false;
+        } catch (Exception e) {
+            ok = false;
+        }
+        long done = System.nanoTime();
+        report.record(request.endpoint(), done - intended, done - sent, ok);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static ExecutorService newPerRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger sequence = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "loadtest-" + sequence.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.querydsl.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 가중치를 둔 요청 템플릿 목록. 한 줄에 "가중치 경로" 하나, # 뒤는 주석이다.
+ * 경로 안의 {a..b} 는 요청마다 a 이상 b 이하의 정수로 바뀐다. 예) 40 /v2/members?ageGoe={0..90}&page={0..9}&size=20
+ * 엔드포인트 이름은 ? 앞의 경로라서 같은 엔드포인트의 여러 조건이 한 줄로 집계된다.
+ */
+final class RequestMix {
+
+    private static final Pattern RANGE = Pattern.compile("\\{(\\d+)\\.\\.(\\d+)}");
+
+    record Entry(int weight, String endpoint, String template) {
+    }
+
+    record Request(String endpoint, String path) {
+    }
+
+    private final List<Entry> entries;
+    private final int[] cumulative;
+
+    private RequestMix(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("request mix has no entries");
+        }
+        this.entries = List.copyOf(entries);
+        this.cumulative = new int[entries.size()];
+        int sum = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            sum += entries.get(i).weight();
+            cumulative[i] = sum;
+        }
+    }
+
+    static RequestMix load(String location) throws IOException {
+        if (location.startsWith("classpath:")) {
+            String resource = location.substring("classpath:".length());
+            try (InputStream in = RequestMix.class.getClassLoader().getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new IOException("no such mix: " + location);
+                }
+                return parse(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList());
+            }
+        }
+        return parse(Files.readAllLines(Path.of(location)));
+    }
+
+    static RequestMix parse(List<String> lines) {
+        List<Entry> entries = new ArrayList<>();
+        for (String raw : lines) {
+            int comment = raw.indexOf('#');
+            String line = (comment >= 0 ? raw.substring(0, comment) : raw).strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] parts = line.split("\\s+", 2);
+            if (parts.length != 2 || !parts[1].startsWith("/")) {
+                throw new IllegalArgumentException("expected '<weight> <path>': " + raw);
+            }
+            int weight = Integer.parseInt(parts[0]);
+            if (weight <= 0) {
+                continue;
+            }
+            int query = parts[1].indexOf('?');
+            entries.add(new Entry(weight, query >= 0 ? parts[1].substring(0, query) : parts[1], parts[1]));
+        }
+        return new RequestMix(entries);
+    }
+
+    List<Entry> entries() {
+        return entries;
+    }
+
+    Request next(SplittableRandom random) {
+        int pick = random.nextInt(cumulative[cumulative.length - 1]);
+        int index = 0;
+        while (cumulative[index] <= pick) {
+            index++;
+        }
+        Entry entry = entries.get(index);
+        return new Request(entry.endpoint(), expand(entry.template(), random));
+    }
+
+    private static String expand(String template, SplittableRandom random) {
+        if (template.indexOf('{') < 0) {
+            return template;
+        }
+        Matcher matcher = RANGE.matcher(template);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            int from = Integer.parseInt(matcher.group(1));
+            int to = Integer.parseInt(matcher.group(2));
+            matcher.appendReplacement(sb, String.valueOf(from + random.nextInt(to - from + 1)));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+}
@@ -6,10 +6,17 @@ import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.concurrent.CompletableFuture;
+
+@Slf4j
 @Profile("local")
 @Component
 @RequiredArgsConstructor
@@ -17,9 +24,29 @@ public class Init {
 
     private final InitMemberService initMemberService;
 
+    /**
+     * true 면 기동(readiness)을 막지 않도록 ApplicationReadyEvent 이후 백그라운드에서 데이터를 넣는다.
+     */
+    @Value("${querydsl.init.async:false}")
+    private boolean async;
+
     @PostConstruct
     public void init() {
-        initMemberService.init();
+        if (!async) {
+            initMemberService.init();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initAsync() {
+        if (async) {
+            CompletableFuture.runAsync(initMemberService::init)
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            log.error("initial data seeding failed", e);
+                        }
+                    });
+        }
     }
 
     @Component
@@ -0,0 +1,38 @@
+package com.example.querydsl.config;
+
+import com.example.querydsl.limit.ConcurrencyLimitInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 회원 검색 엔드포인트에 ConcurrencyLimitInterceptor 를 건다. SSE(/v1/members/stream)는 연결이 오래 살아있어서
+ * 처리 시간으로 한도를 조절하면 한도가 바닥까지 내려가므로 제외한다.
+ */
+@Configuration
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+@ConditionalOnProperty(prefix = "querydsl.concurrency-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<ConcurrencyLimitInterceptor> interceptor;
+
+    public ConcurrencyLimitConfig(ObjectProvider<ConcurrencyLimitInterceptor> interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    @Bean
+    public ConcurrencyLimitInterceptor concurrencyLimitInterceptor(ConcurrencyLimitProperties properties,
+                                                                   MeterRegistry meterRegistry) {
+        return new ConcurrencyLimitInterceptor(properties, meterRegistry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(interceptor.getObject()).addPathPatterns("/v1/members", "/v2/members");
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.querydsl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "querydsl.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 거절할 때 Retry-After 로 알려줄 시간.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    /**
+     * 엔드포인트 묶음(v1, v2)별 한도. 없는 묶음이나 적지 않은 항목은 Limit 의 기본값을 따른다.
+     */
+    private Map<String, Limit> endpoints = new HashMap<>();
+
+    public Limit limit(String group) {
+        return endpoints.getOrDefault(group, new Limit());
+    }
+
+    @Data
+    public static class Limit {
+
+        private int initialLimit = 20;
+
+        private int minLimit = 2;
+
+        private int maxLimit = 200;
+
+        /**
+         * 요청 처리 시간이 이보다 길면 DB 가 밀리고 있다고 보고 한도를 줄인다.
+         */
+        private Duration latencyThreshold = Duration.ofMillis(500);
+
+        /**
+         * 한도를 줄일 때 곱하는 비율.
+         */
+        private double backoffRatio = 0.9;
+    }
+}
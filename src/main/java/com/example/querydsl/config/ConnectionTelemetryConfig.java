@@ -0,0 +1,43 @@
+package com.example.querydsl.config;
+
+import com.example.querydsl.telemetry.ConnectionTelemetryDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * DataSource 빈을 ConnectionTelemetryDataSource 로 감싸서 엔드포인트별 커넥션 대기/점유 시간을 잰다.
+ * 샤드 DataSource 는 빈이 아니라서 감싸지 않는다.
+ */
+@Slf4j
+@Configuration
+public class ConnectionTelemetryConfig {
+
+    private static final String OPEN_IN_VIEW = "spring.jpa.open-in-view";
+
+    @Bean
+    public static BeanPostProcessor connectionTelemetryDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry,
+                                                                             Environment environment) {
+        boolean openInView = environment.getProperty(OPEN_IN_VIEW, Boolean.class, true);
+        if (openInView) {
+            log.warn("{} is enabled: connections used outside a transaction stay checked out until the response is written, "
+                    + "see member.db.connection.hold{open-in-view=true}", OPEN_IN_VIEW);
+        }
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionTelemetryDataSource)) {
+                    return new ConnectionTelemetryDataSource(dataSource, meterRegistry, openInView);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.querydsl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "querydsl.count")
+public class CountEstimateProperties {
+
+    /**
+     * 추정치가 이보다 작으면 추정 대신 카운트 쿼리를 실행한다. 작은 결과는 정확히 세도 싸고 상대 오차는 크기 때문이다.
+     */
+    private long exactThreshold = 10_000;
+
+    /**
+     * 샘플링할 member.id 개수. id 범위가 이보다 작으면 샘플링하지 않고 정확히 센다.
+     */
+    private long sampleSize = 20_000;
+
+    /**
+     * 샘플을 나눠 담을 id 구간 수. 구간을 id 범위 전체에 흩어서 가입 시기에 따른 편향을 줄인다.
+     */
+    private int windows = 16;
+}
@@ -0,0 +1,24 @@
+package com.example.querydsl.config;
+
+import com.example.querydsl.version.DataVersion;
+import com.example.querydsl.version.DataVersionStatementInspector;
+import com.example.querydsl.version.MemberTableWriteListener;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * member/team 을 바꾸는 SQL 을 보고 DataVersion 을 올리도록 StatementInspector 를 SessionFactory 에 건다.
+ */
+@Configuration
+public class DataVersionConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer dataVersionStatementInspectorCustomizer(DataVersion dataVersion,
+                                                                                 ObjectProvider<MemberTableWriteListener> listeners) {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                new DataVersionStatementInspector(dataVersion, listeners));
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.querydsl.config;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * 스프링 빈으로 등록된 Hibernate Integrator 들을 SessionFactory 부트스트랩에 넘긴다.
+ * 이벤트 리스너를 @PostConstruct 에서 등록하면 EntityManagerFactory 가 준비될 때까지 기다려야 하고,
+ * 지연 초기화(lazy-initialization) 에서는 아예 등록되지 않을 수 있기 때문이다.
+ */
+@Configuration
+public class HibernateIntegratorConfig {
+
+    private static final String INTEGRATOR_PROVIDER = "hibernate.integrator_provider";
+
+    @Bean
+    public HibernatePropertiesCustomizer integratorProviderCustomizer(List<Integrator> integrators) {
+        List<Integrator> registered = List.copyOf(integrators);
+        return hibernateProperties -> hibernateProperties.put(INTEGRATOR_PROVIDER, (IntegratorProvider) () -> registered);
+    }
+}
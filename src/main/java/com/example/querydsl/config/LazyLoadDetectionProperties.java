@@ -0,0 +1,16 @@
+package com.example.querydsl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "querydsl.lazy-load-detection")
+public class LazyLoadDetectionProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 한 세션에서 같은 lazy 연관관계가 이만큼 따로 로딩되면 루프 안의 N+1 로 보고 경고한다.
+     */
+    private int threshold = 10;
+}
@@ -0,0 +1,9 @@
+package com.example.querydsl.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(MemberExportProperties.class)
+public class MemberExportConfig {
+}
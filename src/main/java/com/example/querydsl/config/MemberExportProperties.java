@@ -0,0 +1,30 @@
+package com.example.querydsl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "querydsl.export")
+public class MemberExportProperties {
+
+    /**
+     * 동시에 스캔하는 파티션 수. 파티션마다 커넥션을 하나씩 잡으므로 커넥션 풀 크기보다 작게 잡는다.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 스레드 하나가 처리할 id 구간 수. id 가 고르게 퍼져있지 않아도 늦게 끝나는 파티션 하나에 전체가 묶이지 않도록 잘게 나눈다.
+     */
+    private int partitionsPerThread = 4;
+
+    /**
+     * JDBC fetch size. 결과를 전부 메모리에 올리지 않고 이만큼씩 커서로 가져온다.
+     */
+    private int fetchSize = 1_000;
+
+    /**
+     * 작업 스레드별 direct ByteBuffer 크기. 스레드 수만큼 만들어 파티션끼리 돌려 쓴다.
+     */
+    private DataSize bufferSize = DataSize.ofMegabytes(1);
+}
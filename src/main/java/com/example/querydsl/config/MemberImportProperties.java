@@ -0,0 +1,26 @@
+package com.example.querydsl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "querydsl.import")
+public class MemberImportProperties {
+
+    /**
+     * JDBC 배치 하나이자 트랜잭션 하나에 넣는 행 수.
+     */
+    private int batchSize = 1_000;
+
+    /**
+     * 없는 팀 이름을 만나면 팀을 만든다. false 면 그 행을 거절한다.
+     */
+    private boolean createMissingTeams = false;
+
+    /**
+     * 진행 상황(rows/sec)을 로그로 남기는 주기.
+     */
+    private Duration progressInterval = Duration.ofSeconds(10);
+}
@@ -0,0 +1,20 @@
+package com.example.querydsl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "querydsl.search")
+public class MemberSearchProperties {
+
+    /**
+     * MemberRepositoryQueryDsl 검색을 실행할 엔진.
+     * JPA: JPQL + Hibernate. SQL: querydsl-sql 로 만든 SQL 을 모양별로 캐싱해서 JDBC 로 바로 DTO 매핑.
+     * SHARDED: team_id 해시로 나눈 querydsl.sharding.shards 에 SQL 엔진과 같은 SQL 을 보내고 결과를 합친다.
+     */
+    private Engine engine = Engine.JPA;
+
+    public enum Engine {
+        JPA, SQL, SHARDED
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.querydsl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "querydsl.governor")
+public class QueryGovernorProperties {
+
+    /**
+     * 동시에 실행 중인 검색이 이 수 이상이면 부하 상태로 보고 비싼 검색을 줄이거나 거절한다.
+     */
+    private int busyThreshold = 8;
+
+    /**
+     * 부하 상태에서 추정 결과가 이보다 많으면 실행하지 않고 거절한다.
+     */
+    private long rejectEstimatedRows = 100_000;
+
+    /**
+     * 부하 상태에서 maxRows 를 넘을 것으로 추정되는 검색에 대신 적용할 최대 행 수.
+     */
+    private int underLoadMaxRows = 100;
+
+    /**
+     * 엔드포인트 이름(members-v1, members-v2 ...)별 한도. 없는 엔드포인트나 적지 않은 항목은 Budget 의 기본값을 따른다.
+     */
+    private Map<String, Budget> endpoints = new HashMap<>();
+
+    public Budget budget(String endpoint) {
+        return endpoints.getOrDefault(endpoint, new Budget());
+    }
+
+    @Data
+    public static class Budget {
+
+        /**
+         * 트랜잭션 타임아웃으로 건다. 스프링이 JPA 쿼리 힌트와 JDBC Statement#setQueryTimeout 으로 넘기므로 초 단위로 올림된다.
+         */
+        private Duration statementTimeout = Duration.ofSeconds(5);
+
+        /**
+         * 한 응답에 담을 최대 행 수. 넘으면 잘라내고 잘렸다고 알린다.
+         */
+        private int maxRows = 1_000;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.querydsl.config;
+
+import com.example.querydsl.telemetry.RepositoryResourceAspect;
+import com.example.querydsl.telemetry.ResourceAccounting;
+import com.example.querydsl.telemetry.ResourceAccountingInterceptor;
+import com.example.querydsl.telemetry.ResourceUsageEndpoint;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 회원 API 요청과 리포지토리 호출의 스레드 할당량/CPU 시간을 모은다. 결과는 /actuator/resourceusage 와 주기 로그로 본다.
+ */
+@Configuration
+@EnableConfigurationProperties(ResourceAccountingProperties.class)
+@ConditionalOnProperty(prefix = "querydsl.resource-accounting", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ResourceAccountingConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<ResourceAccountingInterceptor> interceptor;
+
+    public ResourceAccountingConfig(ObjectProvider<ResourceAccountingInterceptor> interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    @Bean
+    public ResourceAccounting resourceAccounting(ResourceAccountingProperties properties) {
+        return new ResourceAccounting(properties);
+    }
+
+    @Bean
+    public ResourceAccountingInterceptor resourceAccountingInterceptor(ResourceAccounting resourceAccounting) {
+        return new ResourceAccountingInterceptor(resourceAccounting);
+    }
+
+    @Bean
+    public RepositoryResourceAspect repositoryResourceAspect(ResourceAccounting resourceAccounting) {
+        return new RepositoryResourceAspect(resourceAccounting);
+    }
+
+    @Bean
+    public ResourceUsageEndpoint resourceUsageEndpoint(ResourceAccounting resourceAccounting,
+                                                       ResourceAccountingProperties properties) {
+        return new ResourceUsageEndpoint(resourceAccounting, properties.getTop());
+    }
+
+    /**
+     * 동시성 제한으로 거절된 요청은 세지 않도록 그 뒤에 건다.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(interceptor.getObject())
+                .addPathPatterns("/v1/members/**", "/v2/members/**", "/v3/members/**")
+                .order(Ordered.LOWEST_PRECEDENCE);
+    }
+}
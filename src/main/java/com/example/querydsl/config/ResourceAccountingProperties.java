@@ -0,0 +1,29 @@
+package com.example.querydsl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "querydsl.resource-accounting")
+public class ResourceAccountingProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 이 주기마다 할당량 상위 항목을 로그로 남긴다. 0 이면 남기지 않는다.
+     */
+    private Duration logInterval = Duration.ofMinutes(1);
+
+    /**
+     * 로그와 /actuator/resourceusage 가 기본으로 보여줄 항목 수.
+     */
+    private int top = 10;
+
+    /**
+     * 요청 하나가 이보다 많이 할당하면 바로 경고 로그를 남긴다.
+     */
+    private DataSize requestAllocationWarning = DataSize.ofMegabytes(64);
+}
@@ -0,0 +1,65 @@
+package com.example.querydsl.config;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+
+/**
+ * Hibernate 2차 캐시를 외부 서비스 없이 in-process JCache(Ehcache) 로 구성한다.
+ * region 별 eviction 설정은 querydsl.cache.* 프로퍼티로 바꿀 수 있고,
+ * hit/miss 는 hibernate-micrometer 를 통해 /actuator/metrics 의 hibernate.second.level.cache.requests 로 노출된다.
+ */
+@Configuration
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+public class SecondLevelCacheConfig {
+
+    public static final String TEAM_REGION = "team";
+    public static final String TEAM_MEMBERS_REGION = "team.members";
+    public static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    public static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(SecondLevelCacheProperties properties) {
+        CachingProvider provider = Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+
+        createRegion(cacheManager, TEAM_REGION, properties.getTeam());
+        createRegion(cacheManager, TEAM_MEMBERS_REGION, properties.getTeamMembers());
+        createRegion(cacheManager, QUERY_RESULTS_REGION, properties.getQueryResults());
+
+        // timestamps region 은 evict 되면 query cache 가 stale 데이터를 돌려줄 수 있으므로 만료시키지 않는다.
+        if (cacheManager.getCache(UPDATE_TIMESTAMPS_REGION) == null) {
+            cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, Eh107Configuration.fromEhcacheCacheConfiguration(
+                    CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                            ResourcePoolsBuilder.heap(10_000))));
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private void createRegion(CacheManager cacheManager, String name, SecondLevelCacheProperties.Region region) {
+        if (cacheManager.getCache(name) != null) {
+            return;
+        }
+
+        cacheManager.createCache(name, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                                ResourcePoolsBuilder.heap(region.getHeapEntries()))
+                        .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(region.getTimeToLive()))));
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.querydsl.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "querydsl.cache")
+public class SecondLevelCacheProperties {
+
+    private Region team = new Region(1_000, Duration.ofHours(1));
+    private Region teamMembers = new Region(1_000, Duration.ofMinutes(10));
+    private Region queryResults = new Region(10_000, Duration.ofMinutes(5));
+
+    /**
+     * heapEntries 를 넘어서면 LRU 로 evict 되고, timeToLive 가 지나면 만료된다.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Region {
+        private long heapEntries;
+        private Duration timeToLive;
+    }
+}
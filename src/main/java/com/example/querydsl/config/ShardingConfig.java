@@ -0,0 +1,71 @@
+package com.example.querydsl.config;
+
+import com.example.querydsl.repository.MemberShards;
+import com.example.querydsl.repository.ShardReplicationIntegrator;
+import com.example.querydsl.repository.ShardedMemberRepository;
+import com.example.querydsl.search.UsernameIndex;
+import com.example.querydsl.version.DataVersion;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * querydsl.search.engine=sharded 일 때만 샤드 DataSource 와 ShardedMemberRepository 를 만든다.
+ * 샤드 DataSource 는 빈으로 노출하지 않는다. 노출하면 JPA 가 쓰는 기본 DataSource 자동 설정이 꺼진다.
+ * 커밋된 엔티티 변경을 샤드로 보내는 ShardReplicationIntegrator 도 여기서만 등록한다.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+@ConditionalOnProperty(prefix = "querydsl.search", name = "engine", havingValue = "sharded")
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public MemberShards memberShards(ShardingProperties properties) {
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalStateException("querydsl.sharding.shards must not be empty when querydsl.search.engine=sharded");
+        }
+
+        List<HikariDataSource> dataSources = new ArrayList<>();
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build();
+            dataSource.setPoolName("member-shard-" + dataSources.size());
+            dataSources.add(dataSource);
+        }
+
+        MemberShards memberShards = new MemberShards(dataSources);
+        memberShards.createSchema();
+        return memberShards;
+    }
+
+    /**
+     * Integrator 를 거쳐 EntityManagerFactory 보다 먼저 만들어지므로 JdbcTemplate 빈 대신 DataSource 만 받는다.
+     */
+    @Bean(destroyMethod = "close")
+    public ShardedMemberRepository shardedMemberRepository(MemberShards memberShards,
+                                                           com.querydsl.sql.Configuration querydslSqlConfiguration,
+                                                           DataVersion dataVersion,
+                                                           DataSource dataSource,
+                                                           UsernameIndex usernameIndex,
+                                                           ShardingProperties properties) {
+        return new ShardedMemberRepository(memberShards, querydslSqlConfiguration, dataVersion, new JdbcTemplate(dataSource),
+                usernameIndex, properties.getMaxOffset());
+    }
+
+    @Bean
+    public ShardReplicationIntegrator shardReplicationIntegrator(ShardedMemberRepository shardedMemberRepository) {
+        return new ShardReplicationIntegrator(shardedMemberRepository);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.querydsl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "querydsl.sharding")
+public class ShardingProperties {
+
+    /**
+     * Member 를 team_id 해시로 나눠 담을 샤드 목록. 순서가 곧 샤드 번호라서 운영 중에 바꾸면 데이터를 다시 나눠야 한다.
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * offset 페이징이 허용하는 최대 offset. 샤드마다 offset + size 건을 읽어 합친 뒤 앞을 버리므로 깊을수록 샤드 수만큼 비싸진다.
+     * 이보다 깊은 페이지는 거절하고 /v2/members/after 의 키셋 페이징을 쓰게 한다.
+     */
+    private int maxOffset = 10_000;
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username = "sa";
+        private String password = "";
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.querydsl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "querydsl.write-behind")
+public class WriteBehindProperties {
+
+    /**
+     * 모아둔 변경을 내보내는 주기. 길수록 같은 회원의 연속 변경이 더 많이 합쳐지지만 반영이 늦어진다.
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * 대기 중인 회원 수가 이만큼 쌓이면 주기를 기다리지 않고 바로 내보낸다.
+     */
+    private int maxPending = 10_000;
+
+    /**
+     * JDBC 배치 한 번에 보내는 update 수.
+     */
+    private int batchSize = 500;
+
+    /**
+     * 일시적인 오류(락 타임아웃 등)로 실패한 회원을 다음 주기에 다시 쓰는 최대 횟수. 넘으면 그 회원의 future 를 실패시킨다.
+     * 제약 조건 위반처럼 다시 해도 소용없는 오류는 바로 실패시킨다.
+     */
+    private int maxRetries = 3;
+
+    /**
+     * GROUP_COMMIT 호출자가 커밋을 기다리는 최대 시간.
+     */
+    private Duration groupCommitTimeout = Duration.ofSeconds(5);
+
+    private Durability durability = Durability.BUFFERED;
+
+    public enum Durability {
+        /**
+         * 큐에 넣고 바로 돌아간다. 내보내기 전에 프로세스가 죽으면 그 사이의 변경은 잃는다.
+         */
+        BUFFERED,
+        /**
+         * 내 변경이 들어간 배치가 커밋될 때까지 기다린다. 여러 호출자의 변경을 한 트랜잭션으로 묶는 group commit.
+         */
+        GROUP_COMMIT,
+        /**
+         * 큐를 거치지 않고 호출마다 바로 쓴다. 비교용 기준선.
+         */
+        WRITE_THROUGH
+    }
+}
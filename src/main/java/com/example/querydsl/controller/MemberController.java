@@ -1,37 +1,172 @@
 package com.example.querydsl.controller;
 
+import com.example.querydsl.dto.CountMode;
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.dto.QMemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.governor.GovernedList;
+import com.example.querydsl.governor.QueryGovernor;
 import com.example.querydsl.repository.MemberJpaRepository;
 import com.example.querydsl.repository.MemberRepository;
+import com.example.querydsl.repository.MemberSort;
+import com.example.querydsl.stats.MemberPageService;
+import com.example.querydsl.stream.MemberEventStreamer;
+import com.example.querydsl.version.DataVersion;
+import com.querydsl.core.types.Predicate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.querydsl.binding.QuerydslPredicate;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+
 @Slf4j
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    static final String MEMBERS_V1 = "members-v1";
+    static final String MEMBERS_V2 = "members-v2";
+    static final String TRUNCATED_HEADER = "X-Result-Truncated";
+    static final String MAX_ROWS_HEADER = "X-Result-Max-Rows";
+    static final String COUNT_MODE_HEADER = "X-Count-Mode";
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberEventStreamer memberEventStreamer;
+    private final MemberPageService memberPageService;
+    private final DataVersion dataVersion;
+    private final QueryGovernor queryGovernor;
 
     /**
      * Parameter에 클래스를 받으면 이게 쿼리 파라미터에 존재하는 key/value
      * 쭉 가져와서 해당 클래스에 존재하는 필드면 알아서 만들어서 객체로 반환해준다.
+     * If-None-Match 가 지금 ETag 와 같으면 쿼리 없이 304 를 돌려준다.
+     * 결과는 QueryGovernor 의 maxRows 까지만 주고, 잘렸으면 X-Result-Truncated: true 를 붙인다.
      * */
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-        return memberJpaRepository.search(condition);
+    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition, ServletWebRequest request) {
+        long version = dataVersion.current();
+        if (notModified(request, MemberSearchETag.of(version, condition, queryGovernor.maxRows(MEMBERS_V1)))) {
+            return null;
+        }
+        GovernedList<MemberTeamDto> result = queryGovernor.list(MEMBERS_V1, condition,
+                limit -> memberJpaRepository.search(condition, limit));
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(TRUNCATED_HEADER, String.valueOf(result.truncated()));
+            request.getResponse().setHeader(MAX_ROWS_HEADER, String.valueOf(result.maxRows()));
+        }
+        if (result.downgraded()) {
+            servedETag(request, MemberSearchETag.of(version, condition, result.maxRows()));
+        }
+        return result.content();
+    }
+
+    /**
+     * /v1/members 의 SSE 버전. 결과를 다 모으지 않고 커서에서 읽는 대로 batchSize 건씩 이벤트로 보낸다.
+     * 비동기 응답이라 spring.mvc.async.request-timeout 이 스트림 전체의 상한이다.
+     * */
+    @GetMapping(value = "/v1/members/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamMemberV1(
+            MemberSearchCondition condition,
+            @RequestParam(defaultValue = "" + MemberEventStreamer.DEFAULT_BATCH_SIZE) int batchSize,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        int size = Math.max(1, Math.min(batchSize, 1_000));
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .cacheControl(CacheControl.noStore())
+                // 프록시가 응답을 모아서 보내지 않도록 한다.
+                .header("X-Accel-Buffering", "no")
+                .body(out -> memberEventStreamer.stream(condition, lastEventId, size, out));
     }
 
+    /**
+     * ?sort=age,desc 처럼 MemberSort 가 허용하는 키로 정렬하고, 항상 memberId 로 동순위를 정한다.
+     * ?count=APPROXIMATE 면 카운트 쿼리 대신 추정한 전체 건수를 totalErrorBound 와 함께 돌려준다.
+     * 페이지 크기는 QueryGovernor 의 maxRows 로 자르고, 부하 상태에서는 EXACT 도 APPROXIMATE 로 낮춘다(X-Count-Mode 로 알린다).
+     * */
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPaging(condition, pageable);
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(name = "count", defaultValue = "EXACT") CountMode countMode,
+                                              ServletWebRequest request) {
+        // 인덱스가 없는 정렬은 ETag 확인보다 먼저 400 으로 거절한다.
+        MemberSort.of(pageable.getSort());
+        Pageable bounded = queryGovernor.bound(MEMBERS_V2, pageable);
+        long version = dataVersion.current();
+        if (notModified(request, MemberSearchETag.of(version, condition, bounded, countMode))) {
+            return null;
+        }
+        return queryGovernor.run(MEMBERS_V2, busy -> {
+            CountMode applied = busy ? CountMode.APPROXIMATE : countMode;
+            if (request.getResponse() != null) {
+                request.getResponse().setHeader(COUNT_MODE_HEADER, applied.name());
+            }
+            if (applied != countMode) {
+                servedETag(request, MemberSearchETag.of(version, condition, bounded, applied));
+            }
+            return memberPageService.searchPaging(condition, bounded, applied);
+        });
+    }
+
+    /**
+     * /v2/members 의 키셋 페이징 버전. 응답의 마지막 memberId 를 다음 요청의 lastMemberId 로 준다.
+     * 정렬은 memberId 고정이고, 샤드 엔진이 거절하는 깊은 offset 페이지도 이걸로 읽는다. size 는 /v2/members 의 maxRows 로 자른다.
+     * */
+    @GetMapping("/v2/members/after")
+    public List<MemberTeamDto> searchMemberV2After(MemberSearchCondition condition,
+                                                   @RequestParam(required = false) Long lastMemberId,
+                                                   @RequestParam(defaultValue = "20") int size) {
+        int bounded = Math.max(1, Math.min(size, queryGovernor.maxRows(MEMBERS_V2)));
+        return memberRepository.searchAfter(condition, lastMemberId, bounded);
+    }
+
+    /**
+     * ?username=member1&team.name=teamA 처럼 Member 경로로 조건을 받아서 엔티티 대신 DTO 로 바로 조회한다.
+     * */
+    @GetMapping("/v3/members")
+    public Page<MemberTeamDto> searchMemberV3(@QuerydslPredicate(root = Member.class) Predicate predicate, Pageable pageable) {
+        return memberRepository.findAll(predicate, pageable, new QMemberTeamDto(
+                member.id.as("memberId"),
+                member.username,
+                member.age,
+                team.id.as("teamId"),
+                team.name.as("teamName")));
+    }
+
+    /**
+     * 버전은 쿼리보다 먼저 읽는다. 그 사이 커밋된 변경이 응답에 섞여도 버전이 곧 올라가므로 다음 요청에서 다시 받아간다.
+     * 클라이언트가 응답을 두되 매번 ETag 로 확인하도록 no-cache 를 붙인다.
+     * */
+    private boolean notModified(ServletWebRequest request, String etag) {
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        }
+        return request.checkNotModified(etag);
+    }
+
+    /**
+     * 부하 때문에 줄여서 준 응답(APPROXIMATE 카운트, 작은 maxRows)에 요청한 응답의 ETag 가 붙으면, 데이터가 바뀔 때까지
+     * 줄인 응답이 304 로 재사용된다. 그래서 실제로 적용한 값으로 만든 ETag 로 바꿔 붙인다.
+     * 304 검사는 항상 요청한 응답의 ETag 로 하므로 이 ETag 로는 304 가 나가지 않는다.
+     * */
+    private void servedETag(ServletWebRequest request, String etag) {
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.ETAG, etag);
+        }
     }
 }
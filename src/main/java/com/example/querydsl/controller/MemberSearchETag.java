@@ -0,0 +1,57 @@
+package com.example.querydsl.controller;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import org.springframework.data.domain.Pageable;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 회원 검색 응답의 ETag. DataVersion 과 정규화한 검색 조건/페이지를 합쳐서 만든다.
+ * 빈 문자열 조건은 조건 없음과 같고, 대소문자를 구분하지 않는 username 부분/앞부분 조건은 소문자로 맞춰서
+ * 결과가 같은 요청은 같은 ETag 를 받게 한다.
+ */
+final class MemberSearchETag {
+
+    private MemberSearchETag() {
+    }
+
+    /**
+     * 페이지가 없는 검색. 같은 조건이라도 적용한 maxRows 가 다르면 결과가 다르므로 ETag 에 넣는다.
+     */
+    static String of(long version, MemberSearchCondition condition, int maxRows) {
+        return of(version, condition, Pageable.unpaged(), "maxRows=" + maxRows);
+    }
+
+    static String of(long version, MemberSearchCondition condition, Pageable pageable, Object variant) {
+        StringBuilder key = new StringBuilder()
+                .append("username=").append(normalize(condition.getUsername(), false))
+                .append("&usernameContains=").append(normalize(condition.getUsernameContains(), true))
+                .append("&usernamePrefix=").append(normalize(condition.getUsernamePrefix(), true))
+                .append("&teamName=").append(normalize(condition.getTeamName(), false))
+                .append("&ageGoe=").append(condition.getAgeGoe())
+                .append("&ageLoe=").append(condition.getAgeLoe());
+        if (pageable.isPaged()) {
+            key.append("&page=").append(pageable.getPageNumber())
+                    .append("&size=").append(pageable.getPageSize());
+        }
+        if (pageable.getSort().isSorted()) {
+            key.append("&sort=").append(pageable.getSort());
+        }
+        if (variant != null) {
+            key.append("&variant=").append(variant);
+        }
+
+        String hash = DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+        return "\"" + version + "-" + hash + "\"";
+    }
+
+    private static String normalize(String value, boolean ignoreCase) {
+        if (!StringUtils.hasText(value)) {
+            return "";
+        }
+        return ignoreCase ? value.toLowerCase(Locale.ROOT) : value;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.querydsl.dto;
+
+/**
+ * 페이지 전체 건수를 어떻게 구할지. /v2/members?count=APPROXIMATE 처럼 요청마다 고른다.
+ */
+public enum CountMode {
+    /**
+     * 항상 카운트 쿼리를 실행한다.
+     */
+    EXACT,
+    /**
+     * 유지 중인 팀 집계나 id 구간 샘플링으로 추정하고, 추정치가 작으면 정확히 센다.
+     */
+    APPROXIMATE
+}
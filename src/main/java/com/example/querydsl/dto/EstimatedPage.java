@@ -0,0 +1,25 @@
+package com.example.querydsl.dto;
+
+import lombok.Getter;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * totalElements 가 추정치일 수 있는 페이지. exactTotal 이 false 면 실제 건수는 대략 totalElements ± totalErrorBound(95%) 이다.
+ */
+@Getter
+public class EstimatedPage<T> extends PageImpl<T> {
+
+    private final boolean exactTotal;
+    private final long totalErrorBound;
+    private final String countMethod;
+
+    public EstimatedPage(List<T> content, Pageable pageable, long total, boolean exactTotal, long totalErrorBound, String countMethod) {
+        super(content, pageable, total);
+        this.exactTotal = exactTotal;
+        this.totalErrorBound = totalErrorBound;
+        this.countMethod = countMethod;
+    }
+}
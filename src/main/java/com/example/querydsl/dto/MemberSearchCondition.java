@@ -6,6 +6,9 @@ import lombok.Data;
 public class MemberSearchCondition {
 
     private String username;
+    // username 부분 일치/앞부분 일치. 대소문자를 구분하지 않는다.
+    private String usernameContains;
+    private String usernamePrefix;
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
@@ -5,12 +5,24 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.Hibernate;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "member_username_idx", columnList = "username"),
+        @Index(name = "member_age_idx", columnList = "age")
+})
+@NamedEntityGraph(name = Member.WITH_TEAM, attributeNodes = @NamedAttributeNode("team"))
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Getter
 @ToString(of = {"id", "username", "age"})
 public class Member {
+
+    /**
+     * member.team 을 같은 쿼리로 읽는 fetch plan. 회원과 팀을 함께 보여주는 곳에서 고른다.
+     */
+    public static final String WITH_TEAM = "Member.withTeam";
+
     @Id @GeneratedValue
     @Column(name = "member_id")
     private Long id;
@@ -39,8 +51,24 @@ public class Member {
         }
     }
 
+    public void changeAge(int age) {
+        this.age = age;
+    }
+
+    /**
+     * 연관관계 편의 메서드. 양방향의 반대편(Team.members)은 이미 메모리에 올라와 있을 때만 맞춰주고,
+     * lazy 상태라면 로딩하지 않는다. 다음에 초기화될 때 DB(주인인 Member.team)에서 읽어오면 되기 때문이다.
+     */
     public void changeTeam(Team team) {
+        if (this.team == team) {
+            return;
+        }
+
+        // 초기화되지 않은 프록시라면 그 컬렉션도 당연히 로딩 전이므로 프록시를 건드리지 않는다.
+        if (this.team != null && Hibernate.isInitialized(this.team)) {
+            this.team.removeMember(this);
+        }
         this.team = team;
-        team.getMembers().add(this);
+        team.addMember(this);
     }
 }
@@ -5,25 +5,58 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "team_name_idx", columnList = "name"))
+@NamedEntityGraph(name = Team.WITH_MEMBERS, attributeNodes = @NamedAttributeNode("members"))
+@BatchSize(size = 100)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team")
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Getter
 @ToString(of = {"id", "name"})
 public class Team {
+
+    /**
+     * team.members 를 같은 쿼리로 읽는 fetch plan. 컬렉션 fetch join 이라 페이징과 같이 쓰면 안 된다.
+     */
+    public static final String WITH_MEMBERS = "Team.withMembers";
+
     @Id @GeneratedValue
     @Column(name = "team_id")
     private Long id;
 
     private String name;
 
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team.members")
+    @BatchSize(size = 100)
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
     public Team(String name) {
         this.name = name;
     }
+
+    /**
+     * 팀에 수만 명이 있어도 멤버 한 명 추가/이동 때문에 컬렉션 전체를 로딩하지 않도록
+     * 초기화된 컬렉션에만 반영한다. 연관관계의 주인은 Member.team 이라 DB 반영에는 영향이 없다.
+     */
+    void addMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.add(member);
+        }
+    }
+
+    void removeMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.remove(member);
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package com.example.querydsl.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 팀별 집계 행. Member 변경 이벤트로 증분 갱신되며(TeamStatsEventListener),
+ * min/max 처럼 증분으로 유지할 수 없는 값이 깨질 수 있으면 stale 로 표시해두고 조회 시점에 다시 계산한다.
+ */
+@Entity
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Getter
+@ToString
+public class TeamStats {
+
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+
+    private long memberCount;
+    private long ageSum;
+    private Integer ageMin;
+    private Integer ageMax;
+    private boolean stale;
+
+    public void recompute(long memberCount, long ageSum, Integer ageMin, Integer ageMax) {
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.ageMin = ageMin;
+        this.ageMax = ageMax;
+        this.stale = false;
+    }
+}
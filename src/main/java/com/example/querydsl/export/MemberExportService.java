@@ -0,0 +1,258 @@
+package com.example.querydsl.export;
+
+import com.example.querydsl.config.MemberExportProperties;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.dto.QMemberTeamDto;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+
+/**
+ * member 전체를 CSV 로 내보낸다.
+ * member.id 의 min/max 를 구간으로 나눠 고정 크기 풀에서 파티션마다 읽기 전용 트랜잭션(커넥션 하나)으로 스트리밍 스캔하고,
+ * 파티션별 임시 파일에 direct ByteBuffer 로 쓴 다음 id 순서대로 대상 파일에 이어 붙인다.
+ * direct 버퍼는 만들고 해제하는 비용이 커서 파티션마다가 아니라 스레드 수만큼만 만들어 돌려 쓴다.
+ * 엔티티가 아니라 DTO 로 읽으므로 영속성 컨텍스트에 행이 쌓이지 않는다.
+ * <p>
+ * 파티션마다 트랜잭션이 따로이므로 결과는 한 시점의 스냅샷이 아니다. 내보내는 동안 커밋된 변경은
+ * 아직 읽지 않은 파티션에만 보이고, 파티션 경계를 넘어 옮겨 가는 행은 없으므로 한 회원이 두 번 나오지는 않는다.
+ * 일관된 스냅샷이 필요하면 쓰기를 멈춘 뒤 내보낸다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemberExportService {
+
+    static final String HEADER = "member_id,username,age,team_id,team_name\n";
+
+    private final JPAQueryFactory queryFactory;
+    private final PlatformTransactionManager transactionManager;
+    private final MemberExportProperties properties;
+
+    public ExportResult export(Path target) {
+        return export(target, properties.getThreads());
+    }
+
+    public ExportResult export(Path target, int threads) {
+        long start = System.nanoTime();
+        TransactionTemplate readOnly = readOnlyTransaction();
+
+        Tuple bounds = readOnly.execute(status -> queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .fetchOne());
+        Long minId = bounds == null ? null : bounds.get(0, Long.class);
+        Long maxId = bounds == null ? null : bounds.get(1, Long.class);
+        List<IdRange> ranges = minId == null ? List.of() : IdRange.split(minId, maxId, threads * properties.getPartitionsPerThread());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("member-export-"));
+        // 동시에 도는 파티션은 threads 개를 넘지 않으므로 꺼낼 때 기다리는 일은 없다.
+        BlockingQueue<ByteBuffer> buffers = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < Math.min(threads, ranges.size()); i++) {
+            buffers.add(ByteBuffer.allocateDirect((int) properties.getBufferSize().toBytes()));
+        }
+        List<Path> parts = new ArrayList<>(ranges.size());
+        try {
+            List<Future<Long>> futures = new ArrayList<>(ranges.size());
+            for (IdRange range : ranges) {
+                Path part = Files.createTempFile("member-export-", ".part");
+                parts.add(part);
+                futures.add(executor.submit(() -> exportPartition(range, part, readOnly, buffers)));
+            }
+
+            long rows = 0;
+            for (Future<Long> future : futures) {
+                rows += future.get();
+            }
+            long bytes = concat(target, parts);
+
+            ExportResult result = new ExportResult(rows, bytes, ranges.size(), (System.nanoTime() - start) / 1_000_000);
+            log.info("member export: {}", result);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("member export interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("member export failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            parts.forEach(MemberExportService::deleteQuietly);
+        }
+    }
+
+    private long exportPartition(IdRange range, Path part, TransactionTemplate readOnly,
+                                 BlockingQueue<ByteBuffer> buffers) throws InterruptedException {
+        ByteBuffer buffer = buffers.take();
+        try {
+            buffer.clear();
+            return exportPartition(range, part, readOnly, buffer);
+        } finally {
+            buffers.add(buffer);
+        }
+    }
+
+    private long exportPartition(IdRange range, Path part, TransactionTemplate readOnly, ByteBuffer buffer) {
+        Long rows = readOnly.execute(status -> {
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 Stream<MemberTeamDto> stream = queryFactory
+                         .select(new QMemberTeamDto(
+                                 member.id.as("memberId"),
+                                 member.username,
+                                 member.age,
+                                 team.id.as("teamId"),
+                                 team.name.as("teamName")))
+                         .from(member)
+                         .leftJoin(member.team, team)
+                         .where(member.id.between(range.from(), range.to()))
+                         .orderBy(member.id.asc())
+                         .setHint(HibernateHints.HINT_FETCH_SIZE, properties.getFetchSize())
+                         .stream()) {
+                long count = 0;
+                for (MemberTeamDto dto : (Iterable<MemberTeamDto>) stream::iterator) {
+                    write(channel, buffer, toCsv(dto).getBytes(StandardCharsets.UTF_8));
+                    count++;
+                }
+                drain(channel, buffer);
+                return count;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    /**
+     * 파티션 파일을 id 순서대로 이어 붙인다. transferTo 로 커널 안에서 복사해서 사용자 공간 버퍼를 거치지 않는다.
+     */
+    private long concat(Path target, List<Path> parts) throws IOException {
+        try (FileChannel out = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.wrap(HEADER.getBytes(StandardCharsets.UTF_8));
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+            return out.size();
+        }
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, byte[] line) throws IOException {
+        if (buffer.remaining() < line.length) {
+            drain(channel, buffer);
+        }
+        if (buffer.remaining() < line.length) {
+            // 버퍼보다 큰 행은 그대로 쓴다.
+            ByteBuffer wrapped = ByteBuffer.wrap(line);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+            return;
+        }
+        buffer.put(line);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    static String toCsv(MemberTeamDto dto) {
+        return dto.getMemberId() + ","
+                + escape(dto.getUsername()) + ","
+                + dto.getAge() + ","
+                + (dto.getTeamId() == null ? "" : dto.getTeamId()) + ","
+                + escape(dto.getTeamName()) + "\n";
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void deleteQuietly(Path part) {
+        try {
+            Files.deleteIfExists(part);
+        } catch (IOException e) {
+            log.warn("could not delete export part {}", part, e);
+        }
+    }
+
+    /**
+     * 양 끝을 포함하는 member.id 구간.
+     */
+    record IdRange(long from, long to) {
+
+        static List<IdRange> split(long minId, long maxId, int partitions) {
+            long span = maxId - minId + 1;
+            int count = (int) Math.max(1, Math.min(partitions, span));
+            long step = span / count;
+            long remainder = span % count;
+
+            List<IdRange> ranges = new ArrayList<>(count);
+            long from = minId;
+            for (int i = 0; i < count; i++) {
+                long to = from + step - 1 + (i < remainder ? 1 : 0);
+                ranges.add(new IdRange(from, to));
+                from = to + 1;
+            }
+            return ranges;
+        }
+    }
+
+    public record ExportResult(long rows, long bytes, int partitions, long elapsedMillis) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.querydsl.governor;
+
+import java.util.List;
+
+/**
+ * maxRows 로 잘린 검색 결과. truncated 면 조건에 맞는 행이 더 있다.
+ * downgraded 면 부하 때문에 엔드포인트 maxRows 대신 더 작은 한도가 적용된 것이다.
+ */
+public record GovernedList<T>(List<T> content, boolean truncated, int maxRows, boolean downgraded) {
+}
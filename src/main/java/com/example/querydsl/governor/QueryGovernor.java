@@ -0,0 +1,158 @@
+package com.example.querydsl.governor;
+
+import com.example.querydsl.config.MemberSearchProperties;
+import com.example.querydsl.config.QueryGovernorProperties;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.stats.MemberCountEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * 회원 검색 엔드포인트의 실행 한도를 건다.
+ * <ul>
+ *     <li>statement timeout: 엔드포인트별 타임아웃을 가진 읽기 전용 트랜잭션 안에서 실행한다.
+ *     스프링이 트랜잭션 타임아웃을 JPA 쿼리 힌트와 JdbcTemplate 의 Statement#setQueryTimeout 으로 넘기므로
+ *     JPAQueryFactory, 캐시된 JPQL, SQL 엔진이 모두 같은 한도를 받는다. 샤드는 별도 DataSource 라 적용되지 않는다.</li>
+ *     <li>max rows: maxRows + 1 건만 읽어서 넘치면 잘라내고 GovernedList.truncated 로 알린다.</li>
+ *     <li>비용 추정: 평소에는 maxRows + 1 로 읽는 양이 제한되므로 추정하지 않는다. 실행 중인 검색이 busyThreshold 를 넘으면
+ *     MemberCountEstimator 의 카운트 샘플링으로 결과 건수를 추정해서, maxRows 를 넘을 검색은 underLoadMaxRows 로 줄이고
+ *     rejectEstimatedRows 를 넘을 검색은 실행하지 않는다.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class QueryGovernor {
+
+    private final QueryGovernorProperties properties;
+    private final PlatformTransactionManager transactionManager;
+    private final MemberCountEstimator memberCountEstimator;
+    private final MemberSearchProperties searchProperties;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public QueryGovernor(QueryGovernorProperties properties,
+                         PlatformTransactionManager transactionManager,
+                         MemberCountEstimator memberCountEstimator,
+                         MemberSearchProperties searchProperties) {
+        this.properties = properties;
+        this.transactionManager = transactionManager;
+        this.memberCountEstimator = memberCountEstimator;
+        this.searchProperties = searchProperties;
+    }
+
+    /**
+     * query 는 받은 limit 건까지만 읽어야 한다. limit 은 적용할 maxRows + 1 이다.
+     */
+    public <T> GovernedList<T> list(String endpoint, MemberSearchCondition condition, IntFunction<List<T>> query) {
+        QueryGovernorProperties.Budget budget = properties.budget(endpoint);
+        boolean busy = inFlight.incrementAndGet() > properties.getBusyThreshold();
+        try {
+            // 부하 상태의 비용 추정도 쿼리이므로 검색과 같은 타임아웃 안에서 실행한다.
+            return withTimeout(endpoint, budget.getStatementTimeout(), () -> {
+                int maxRows = budget.getMaxRows();
+                boolean downgraded = false;
+                if (busy) {
+                    long estimated = estimate(condition);
+                    if (estimated > properties.getRejectEstimatedRows()) {
+                        log.warn("rejected {} under load, estimated {} rows: {}", endpoint, estimated, condition);
+                        throw new QueryRejectedException("search is too broad while the server is busy, narrow the condition");
+                    }
+                    if (estimated > maxRows && properties.getUnderLoadMaxRows() < maxRows) {
+                        maxRows = properties.getUnderLoadMaxRows();
+                        downgraded = true;
+                    }
+                }
+
+                List<T> rows = query.apply(maxRows + 1);
+                if (rows.size() > maxRows) {
+                    return new GovernedList<>(List.copyOf(rows.subList(0, maxRows)), true, maxRows, downgraded);
+                }
+                return new GovernedList<>(rows, false, maxRows, downgraded);
+            });
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 페이지 검색용. 행 수는 페이지 크기로 이미 제한되므로 타임아웃만 걸고, 부하 상태인지를 query 에 넘겨서
+     * 비싼 부분(정확한 카운트 등)을 줄일지 고르게 한다.
+     */
+    public <T> T run(String endpoint, LoadAwareQuery<T> query) {
+        QueryGovernorProperties.Budget budget = properties.budget(endpoint);
+        boolean busy = inFlight.incrementAndGet() > properties.getBusyThreshold();
+        try {
+            return withTimeout(endpoint, budget.getStatementTimeout(), () -> query.run(busy));
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 페이지 크기를 엔드포인트의 maxRows 로 자른다.
+     */
+    public Pageable bound(String endpoint, Pageable pageable) {
+        int maxRows = properties.budget(endpoint).getMaxRows();
+        if (pageable.isUnpaged()) {
+            return PageRequest.of(0, maxRows, pageable.getSort());
+        }
+        if (pageable.getPageSize() <= maxRows) {
+            return pageable;
+        }
+        return PageRequest.of(pageable.getPageNumber(), maxRows, pageable.getSort());
+    }
+
+    /**
+     * 부하가 없을 때 엔드포인트에 적용하는 최대 행 수.
+     */
+    public int maxRows(String endpoint) {
+        return properties.budget(endpoint).getMaxRows();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 샤드 데이터는 기본 DB 로 추정할 수 없으므로 작게 본다. id 범위가 작아 추정하지 않는 경우도 테이블이 작다는 뜻이다.
+     */
+    private long estimate(MemberSearchCondition condition) {
+        if (searchProperties.getEngine() == MemberSearchProperties.Engine.SHARDED) {
+            return 0;
+        }
+        Optional<MemberCountEstimator.Estimate> estimate = memberCountEstimator.estimate(condition);
+        return estimate.map(MemberCountEstimator.Estimate::total).orElse(0L);
+    }
+
+    private <T> T withTimeout(String endpoint, Duration timeout, Supplier<T> query) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        // 트랜잭션 타임아웃은 초 단위라 올림한다.
+        template.setTimeout((int) Math.max(1, (timeout.toMillis() + 999) / 1000));
+        try {
+            return template.execute(status -> query.get());
+        } catch (QueryTimeoutException | jakarta.persistence.QueryTimeoutException | TransactionTimedOutException e) {
+            log.warn("{} exceeded statement timeout {}", endpoint, timeout);
+            throw new QueryRejectedException("search exceeded the statement timeout of " + timeout, e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface LoadAwareQuery<T> {
+
+        T run(boolean busy);
+    }
+}
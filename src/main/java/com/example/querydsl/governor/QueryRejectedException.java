@@ -0,0 +1,19 @@
+package com.example.querydsl.governor;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * QueryGovernor 가 검색을 실행하지 않았거나 statement timeout 으로 끊었을 때 던진다.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class QueryRejectedException extends RuntimeException {
+
+    public QueryRejectedException(String message) {
+        super(message);
+    }
+
+    public QueryRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
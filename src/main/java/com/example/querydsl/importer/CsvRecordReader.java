@@ -0,0 +1,80 @@
+package com.example.querydsl.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV 를 레코드 단위로 읽는다. 따옴표 안의 쉼표/줄바꿈과 "" 이스케이프를 처리하고,
+ * MemberExportService 가 쓴 파일을 그대로 읽을 수 있다. 한 번에 레코드 하나만 메모리에 둔다.
+ */
+final class CsvRecordReader {
+
+    private final BufferedReader reader;
+    private long line;
+
+    CsvRecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 파일 끝이면 null.
+     */
+    CsvRecord next() throws IOException {
+        String current = reader.readLine();
+        if (current == null) {
+            return null;
+        }
+        long startLine = ++line;
+        StringBuilder raw = new StringBuilder(current);
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == current.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // 따옴표 안의 줄바꿈은 필드의 일부다.
+                current = reader.readLine();
+                if (current == null) {
+                    break;
+                }
+                line++;
+                raw.append('\n').append(current);
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+
+            char c = current.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < current.length() && current.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return new CsvRecord(startLine, raw.toString(), fields, quoted);
+    }
+
+    /**
+     * line 은 레코드가 시작한 줄 번호(1 부터)다. unterminated 면 닫히지 않은 따옴표를 만나 파일 끝까지 읽은 것이다.
+     */
+    record CsvRecord(long line, String raw, List<String> fields, boolean unterminated) {
+    }
+}
@@ -0,0 +1,433 @@
+package com.example.querydsl.importer;
+
+import com.example.querydsl.config.MemberImportProperties;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.ShardedMemberRepository;
+import com.example.querydsl.search.UsernameIndex;
+import com.example.querydsl.stats.TeamStatsService;
+import com.example.querydsl.version.DataVersion;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV/NDJSON 파일의 회원을 한 줄씩 읽어서 넣는다. 파일 전체나 엔티티를 메모리에 두지 않으므로 파일 크기와 상관없이 메모리가 일정하다.
+ * <ul>
+ *     <li>팀 이름은 시작할 때 읽어둔 이름 -> id 맵으로 바꾼다. 없는 팀은 거절하거나 createMissingTeams 면 만든다.</li>
+ *     <li>StatelessSession 의 커넥션에서 batchSize 건씩 JDBC 배치 insert 하고 배치마다 커밋한다. 영속성 컨텍스트를 거치지 않는다.
+ *     id 는 Member 의 Hibernate 시퀀스 생성기에서 받으므로 ORM 으로 넣는 회원과 겹치지 않는다.</li>
+ *     <li>검증에 실패한 행과 insert 에 실패한 행은 rejectFile 에 "줄 번호 TAB 이유 TAB 원래 레코드" 로 남긴다.
+ *     배치가 실패하면 어느 행 때문인지 모르므로 그 배치만 한 건씩 다시 넣는다.</li>
+ * </ul>
+ * Hibernate 이벤트를 거치지 않으므로 UsernameIndex, DataVersion 은 배치마다 직접 반영하고,
+ * 끝나면 팀 집계를 stale 로 돌리고 team.members/쿼리 캐시를 비운다.
+ * engine=sharded 면 커밋한 배치를 team_id 해시로 나눠 샤드에도 넣는다.
+ * CSV 는 username, age, team_name(또는 teamName) 열을 헤더 이름으로 찾고 나머지 열(member_id 등)은 무시한다.
+ */
+@Slf4j
+@Service
+public class MemberImportService {
+
+    private static final String INSERT_MEMBER = "insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)";
+    private static final int MAX_USERNAME = 255;
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final ObjectMapper objectMapper;
+    private final MemberImportProperties properties;
+    private final UsernameIndex usernameIndex;
+    private final TeamStatsService teamStatsService;
+    private final DataVersion dataVersion;
+    private final ObjectProvider<ShardedMemberRepository> shardedMemberRepository;
+
+    public MemberImportService(EntityManagerFactory entityManagerFactory,
+                               ObjectMapper objectMapper,
+                               MemberImportProperties properties,
+                               UsernameIndex usernameIndex,
+                               TeamStatsService teamStatsService,
+                               DataVersion dataVersion,
+                               ObjectProvider<ShardedMemberRepository> shardedMemberRepository) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.usernameIndex = usernameIndex;
+        this.teamStatsService = teamStatsService;
+        this.dataVersion = dataVersion;
+        this.shardedMemberRepository = shardedMemberRepository;
+    }
+
+    /**
+     * 확장자가 .ndjson/.jsonl 이면 NDJSON, 아니면 CSV 로 읽는다.
+     */
+    public ImportResult importMembers(Path source, Path rejectFile) {
+        return importMembers(source, Format.of(source), rejectFile);
+    }
+
+    public ImportResult importMembers(Path source, Format format, Path rejectFile) {
+        long start = System.nanoTime();
+        Counts counts = new Counts(start);
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+             StatelessSession session = sessionFactory.openStatelessSession()) {
+            Map<String, Long> teams = loadTeams(session);
+            IdentifierGenerator ids = sessionFactory.getMappingMetamodel().getEntityDescriptor(Member.class).getIdentifierGenerator();
+            RowReader rows = format == Format.NDJSON ? ndjsonRows(reader) : csvRows(reader);
+
+            List<Pending> batch = new ArrayList<>(properties.getBatchSize());
+            Row row;
+            while ((row = rows.next()) != null) {
+                if (row.raw().isBlank()) {
+                    continue;
+                }
+                counts.read++;
+                Pending pending;
+                try {
+                    pending = validate(row, teams, counts);
+                } catch (IllegalArgumentException e) {
+                    reject(rejects, row, e.getMessage(), counts);
+                    continue;
+                }
+                batch.add(pending.withId((Long) ids.generate((SharedSessionContractImplementor) session, null)));
+                if (batch.size() >= properties.getBatchSize()) {
+                    flush(session, batch, rejects, counts);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                flush(session, batch, rejects, counts);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (counts.imported > 0 || counts.createdTeams > 0) {
+                afterImport();
+            }
+        }
+
+        ImportResult result = counts.result();
+        log.info("member import: {} ({} rows/s)", result, (long) result.rowsPerSecond());
+        return result;
+    }
+
+    private Map<String, Long> loadTeams(StatelessSession session) {
+        Map<String, Long> teams = new HashMap<>();
+        // 같은 이름의 팀이 여럿이면 먼저 만들어진 팀으로 본다.
+        for (Object[] team : session.createQuery("select t.name, t.id from Team t order by t.id", Object[].class).getResultList()) {
+            teams.putIfAbsent((String) team[0], (Long) team[1]);
+        }
+        return teams;
+    }
+
+    /**
+     * 검증만 하고 id 는 채우지 않는다. 거절할 이유가 있으면 IllegalArgumentException.
+     */
+    private Pending validate(Row row, Map<String, Long> teams, Counts counts) {
+        if (row.error() != null) {
+            throw new IllegalArgumentException(row.error());
+        }
+        String username = row.username() == null ? null : row.username().trim();
+        if (!StringUtils.hasText(username)) {
+            throw new IllegalArgumentException("username is required");
+        }
+        if (username.length() > MAX_USERNAME) {
+            throw new IllegalArgumentException("username is longer than " + MAX_USERNAME);
+        }
+
+        int age;
+        try {
+            age = Integer.parseInt(row.age() == null ? "" : row.age().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("age is not a number: " + row.age());
+        }
+        if (age < 0) {
+            throw new IllegalArgumentException("age must not be negative: " + age);
+        }
+
+        Long teamId = null;
+        if (StringUtils.hasText(row.teamName())) {
+            String teamName = row.teamName().trim();
+            teamId = teams.get(teamName);
+            if (teamId == null) {
+                if (!properties.isCreateMissingTeams()) {
+                    throw new IllegalArgumentException("unknown team: " + teamName);
+                }
+                teamId = createTeam(teamName);
+                teams.put(teamName, teamId);
+                counts.createdTeams++;
+            }
+        }
+        return new Pending(row, null, username, age, teamId);
+    }
+
+    /**
+     * 이후 배치가 롤백되어도 팀은 남아야 하므로 따로 커밋한다.
+     * 팀 생성은 드물고 엔티티 이벤트(팀 집계 행, 샤드 복제)를 타야 하므로 StatelessSession 이 아닌 일반 세션으로 넣는다.
+     */
+    private Long createTeam(String name) {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                Team team = new Team(name);
+                session.persist(team);
+                tx.commit();
+                return team.getId();
+            } catch (RuntimeException e) {
+                rollbackQuietly(tx);
+                throw e;
+            }
+        }
+    }
+
+    private void flush(StatelessSession session, List<Pending> batch, BufferedWriter rejects, Counts counts) throws IOException {
+        Transaction tx = session.beginTransaction();
+        try {
+            session.doWork(connection -> insert(connection, batch));
+            tx.commit();
+        } catch (RuntimeException e) {
+            rollbackQuietly(tx);
+            if (batch.size() == 1) {
+                reject(rejects, batch.get(0).row(), reason(e), counts);
+                return;
+            }
+            for (Pending pending : batch) {
+                flush(session, List.of(pending), rejects, counts);
+            }
+            return;
+        }
+
+        // 기본 DB 는 이미 커밋됐으므로 샤드 실패는 이 배치를 거절하지 않고 남기기만 한다.
+        try {
+            shardedMemberRepository.ifAvailable(repository -> repository.saveMembers(batch.stream()
+                    .map(pending -> new Object[]{pending.id(), pending.username(), pending.age(), pending.teamId()})
+                    .toList()));
+        } catch (RuntimeException e) {
+            log.error("member import could not copy {} committed members to the shards", batch.size(), e);
+        }
+        for (Pending pending : batch) {
+            usernameIndex.put(pending.id(), pending.username());
+        }
+        dataVersion.changed();
+        counts.imported += batch.size();
+        counts.logProgress(properties.getProgressInterval().toNanos());
+    }
+
+    private static void insert(Connection connection, List<Pending> batch) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_MEMBER)) {
+            for (Pending pending : batch) {
+                statement.setLong(1, pending.id());
+                statement.setString(2, pending.username());
+                statement.setInt(3, pending.age());
+                if (pending.teamId() == null) {
+                    statement.setNull(4, Types.BIGINT);
+                } else {
+                    statement.setLong(4, pending.teamId());
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * 팀 집계, team.members 컬렉션 캐시, 쿼리 캐시(팀 이름 조회 등)는 이벤트로 갱신되지 않으므로 직접 무효화한다.
+     */
+    private void afterImport() {
+        teamStatsService.invalidateAll();
+        sessionFactory.getCache().evictCollectionData(Team.class.getName() + ".members");
+        sessionFactory.getCache().evictQueryRegions();
+        dataVersion.changed();
+    }
+
+    private RowReader csvRows(BufferedReader reader) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader);
+        CsvRecordReader.CsvRecord header = csv.next();
+        if (header == null) {
+            return () -> null;
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.fields().size(); i++) {
+            columns.putIfAbsent(header.fields().get(i).trim().replace("_", "").toLowerCase(Locale.ROOT), i);
+        }
+        Integer username = columns.get("username");
+        Integer age = columns.get("age");
+        Integer teamName = columns.get("teamname");
+        if (username == null || age == null) {
+            throw new IllegalArgumentException("csv header must have username and age columns: " + header.raw());
+        }
+        int width = header.fields().size();
+
+        return () -> {
+            CsvRecordReader.CsvRecord record = csv.next();
+            if (record == null) {
+                return null;
+            }
+            if (record.unterminated()) {
+                return Row.rejected(record.line(), record.raw(), "unterminated quoted field");
+            }
+            List<String> fields = record.fields();
+            if (fields.size() != width) {
+                return Row.rejected(record.line(), record.raw(), "expected " + width + " columns but found " + fields.size());
+            }
+            return new Row(record.line(), record.raw(), fields.get(username), fields.get(age),
+                    teamName == null ? null : fields.get(teamName), null);
+        };
+    }
+
+    private RowReader ndjsonRows(BufferedReader reader) {
+        long[] line = {0};
+        return () -> {
+            String raw = reader.readLine();
+            if (raw == null) {
+                return null;
+            }
+            line[0]++;
+            if (raw.isBlank()) {
+                return new Row(line[0], raw, null, null, null, null);
+            }
+            try {
+                JsonNode node = objectMapper.readTree(raw);
+                if (!node.isObject()) {
+                    return Row.rejected(line[0], raw, "not a json object");
+                }
+                String teamName = text(node, "teamName");
+                return new Row(line[0], raw, text(node, "username"), text(node, "age"),
+                        teamName != null ? teamName : text(node, "team_name"), null);
+            } catch (JsonProcessingException e) {
+                return Row.rejected(line[0], raw, "invalid json: " + e.getOriginalMessage());
+            }
+        };
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static void reject(BufferedWriter rejects, Row row, String reason, Counts counts) throws IOException {
+        rejects.write(row.line() + "\t" + singleLine(reason) + "\t" + singleLine(row.raw()));
+        rejects.newLine();
+        counts.rejected++;
+    }
+
+    private static String singleLine(String value) {
+        return String.valueOf(value).replace("\r", "\\r").replace("\n", "\\n").replace("\t", "\\t");
+    }
+
+    private static String reason(RuntimeException e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    private static void rollbackQuietly(Transaction tx) {
+        try {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+        } catch (RuntimeException e) {
+            log.warn("rollback failed", e);
+        }
+    }
+
+    public enum Format {
+        CSV, NDJSON;
+
+        static Format of(Path source) {
+            String name = source.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+        }
+    }
+
+    public record ImportResult(long read, long imported, long rejected, int createdTeams, long elapsedMillis) {
+
+        public double rowsPerSecond() {
+            return elapsedMillis == 0 ? imported : imported * 1000.0 / elapsedMillis;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+
+        /**
+         * 파일 끝이면 null.
+         */
+        Row next() throws IOException;
+    }
+
+    /**
+     * 파일에서 읽은 레코드 하나. error 가 있으면 읽는 단계에서 이미 거절된 것이다.
+     */
+    private record Row(long line, String raw, String username, String age, String teamName, String error) {
+
+        static Row rejected(long line, String raw, String error) {
+            return new Row(line, raw, null, null, null, error);
+        }
+    }
+
+    private record Pending(Row row, Long id, String username, int age, Long teamId) {
+
+        Pending withId(Long id) {
+            return new Pending(row, id, username, age, teamId);
+        }
+    }
+
+    private static final class Counts {
+
+        private final long start;
+        private long lastLog;
+        private long read;
+        private long imported;
+        private long rejected;
+        private int createdTeams;
+
+        private Counts(long start) {
+            this.start = start;
+            this.lastLog = start;
+        }
+
+        void logProgress(long intervalNanos) {
+            long now = System.nanoTime();
+            if (now - lastLog < intervalNanos) {
+                return;
+            }
+            lastLog = now;
+            log.info("member import: {} read, {} imported, {} rejected, {} rows/s",
+                    read, imported, rejected, (long) result().rowsPerSecond());
+        }
+
+        ImportResult result() {
+            return new ImportResult(read, imported, rejected, createdTeams, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
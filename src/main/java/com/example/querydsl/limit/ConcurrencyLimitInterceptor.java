@@ -0,0 +1,90 @@
+package com.example.querydsl.limit;
+
+import com.example.querydsl.config.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /v1, /v2 회원 검색 앞에서 묶음별 AimdLimiter 자리를 잡는다. 자리가 없으면 Tomcat 스레드에서 Hikari 커넥션을 기다리며
+ * 쌓이게 두지 않고 바로 503 + Retry-After 로 돌려보낸다.
+ * <p>
+ * 지표: member.concurrency.limit, member.concurrency.in-flight (gauge), member.concurrency.rejected (counter). 모두 endpoint 태그가 붙는다.
+ */
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String ACQUIRED = ConcurrencyLimitInterceptor.class.getName() + ".acquired";
+    private static final String STARTED = ConcurrencyLimitInterceptor.class.getName() + ".started";
+
+    private final Map<String, AimdLimiter> limiters = new LinkedHashMap<>();
+    private final String retryAfterSeconds;
+
+    public ConcurrencyLimitInterceptor(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.retryAfterSeconds = String.valueOf(Math.max(1, properties.getRetryAfter().toSeconds()));
+        for (String group : new String[]{"v1", "v2"}) {
+            ConcurrencyLimitProperties.Limit limit = properties.limit(group);
+            AimdLimiter limiter = new AimdLimiter(limit.getInitialLimit(), limit.getMinLimit(), limit.getMaxLimit(),
+                    limit.getLatencyThreshold().toNanos(), limit.getBackoffRatio());
+            limiters.put(group, limiter);
+
+            Gauge.builder("member.concurrency.limit", limiter, AimdLimiter::getLimit)
+                    .tag("endpoint", group).register(meterRegistry);
+            Gauge.builder("member.concurrency.in-flight", limiter, AimdLimiter::getInFlight)
+                    .tag("endpoint", group).register(meterRegistry);
+            FunctionCounter.builder("member.concurrency.rejected", limiter, AimdLimiter::getRejected)
+                    .tag("endpoint", group).register(meterRegistry);
+        }
+    }
+
+    public AimdLimiter limiter(String group) {
+        return limiters.get(group);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        AimdLimiter limiter = limiters.get(group(request));
+        if (limiter == null) {
+            return true;
+        }
+        if (!limiter.tryAcquire()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            return false;
+        }
+        request.setAttribute(ACQUIRED, limiter);
+        request.setAttribute(STARTED, System.nanoTime());
+        return true;
+    }
+
+    /**
+     * preHandle 이 true 를 돌려준 요청만 불린다. 예외가 ResponseStatus 로 바뀐 경우도 있으므로 상태 코드로 실패를 본다.
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(request.getAttribute(ACQUIRED) instanceof AimdLimiter limiter)) {
+            return;
+        }
+        request.removeAttribute(ACQUIRED);
+        long latency = System.nanoTime() - (Long) request.getAttribute(STARTED);
+        limiter.release(latency, ex != null || response.getStatus() >= 500);
+    }
+
+    private static String group(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/v1/")) {
+            return "v1";
+        }
+        if (path.startsWith("/v2/")) {
+            return "v2";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.querydsl.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 샤드 검색에 querydsl.sharding.max-offset 보다 깊은 offset 페이지를 요청받았을 때 던진다.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class DeepOffsetException extends RuntimeException {
+
+    public DeepOffsetException(String message) {
+        super(message);
+    }
+}
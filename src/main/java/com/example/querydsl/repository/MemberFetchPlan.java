@@ -0,0 +1,40 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.Member;
+import com.querydsl.jpa.impl.AbstractJPAQuery;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.SpecHints;
+
+/**
+ * 회원을 엔티티로 읽을 때 연관관계를 어디까지 같이 읽을지 고르는 프로필.
+ * fetch join 을 쿼리마다 직접 붙이는 대신 이름 붙인 엔티티 그래프(fetchgraph 힌트)로 건다.
+ */
+public enum MemberFetchPlan {
+
+    /**
+     * 연관관계는 lazy 로 두고, 건드리면 @BatchSize 만큼 IN 쿼리로 묶어서 읽는다. 회원 필드만 쓰는 경우.
+     */
+    DEFAULT(null),
+
+    /**
+     * member.team 을 같은 쿼리에서 읽는다. 회원마다 팀 이름을 쓰는 목록/직렬화에서 고른다.
+     */
+    WITH_TEAM(Member.WITH_TEAM);
+
+    private final String entityGraph;
+
+    MemberFetchPlan(String entityGraph) {
+        this.entityGraph = entityGraph;
+    }
+
+    public String getEntityGraph() {
+        return entityGraph;
+    }
+
+    <Q extends AbstractJPAQuery<?, Q>> Q apply(Q query, EntityManager em) {
+        if (entityGraph != null) {
+            query.setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph(entityGraph));
+        }
+        return query;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.Member;
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * QuerydslPredicateExecutor 의 findAll 에 MemberFetchPlan 을 고를 수 있게 한 것.
+ * 기본 findAll(Predicate) 는 DEFAULT 와 같다.
+ */
+public interface MemberFetchPlanPredicateExecutor {
+
+    List<Member> findAll(Predicate predicate, MemberFetchPlan plan);
+
+    Page<Member> findAll(Predicate predicate, Pageable pageable, MemberFetchPlan plan);
+}
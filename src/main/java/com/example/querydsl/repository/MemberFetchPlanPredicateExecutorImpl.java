@@ -0,0 +1,56 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.Member;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.support.Querydsl;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+
+import static com.example.querydsl.entity.QMember.member;
+
+public class MemberFetchPlanPredicateExecutorImpl implements MemberFetchPlanPredicateExecutor {
+
+    private final JPAQueryFactory queryFactory;
+    private final EntityManager em;
+    private final Querydsl querydsl;
+
+    public MemberFetchPlanPredicateExecutorImpl(JPAQueryFactory queryFactory, EntityManager em) {
+        this.queryFactory = queryFactory;
+        this.em = em;
+        this.querydsl = new Querydsl(em, new PathBuilder<>(Member.class, member.getMetadata()));
+    }
+
+    @Override
+    public List<Member> findAll(Predicate predicate, MemberFetchPlan plan) {
+        return plan.apply(selectFrom(predicate), em).fetch();
+    }
+
+    /**
+     * WITH_TEAM 은 to-one 이라 행 수가 늘지 않으므로 DB 에서 그대로 페이징된다.
+     * 카운트에는 fetch plan 을 걸지 않는다.
+     */
+    @Override
+    public Page<Member> findAll(Predicate predicate, Pageable pageable, MemberFetchPlan plan) {
+        List<Member> content = querydsl.applyPagination(pageable, plan.apply(selectFrom(predicate), em)).fetch();
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(member.count())
+                .from(member)
+                .where(predicate);
+
+        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+    }
+
+    private JPAQuery<Member> selectFrom(Predicate predicate) {
+        return queryFactory
+                .selectFrom(member)
+                .where(predicate);
+    }
+}
@@ -6,6 +6,7 @@ import com.example.querydsl.dto.QMemberTeamDto;
 import com.example.querydsl.entity.Member;
 import com.example.querydsl.entity.QMember;
 import com.example.querydsl.entity.QTeam;
+import com.example.querydsl.search.UsernameIndex;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
@@ -13,11 +14,13 @@ import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static com.example.querydsl.entity.QMember.*;
 import static com.example.querydsl.entity.QTeam.*;
@@ -29,6 +32,8 @@ public class MemberJpaRepository {
     @PersistenceContext
     EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final UsernameIndex usernameIndex;
+    private final MemberSearchQueryCache searchQueryCache;
 
     public void save(Member member) {
         em.persist(member);
@@ -47,6 +52,10 @@ public class MemberJpaRepository {
         return queryFactory.selectFrom(member).fetch();
     }
 
+    public List<Member> findAll_Querydsl(MemberFetchPlan plan) {
+        return plan.apply(queryFactory.selectFrom(member), em).fetch();
+    }
+
     public List<Member> findByUsername(String username) {
         return em.createQuery("SELECT m FROM Member m WHERE m.username =: username", Member.class)
                 .setParameter("username", username)
@@ -90,7 +99,25 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    /**
+     * 조건 모양별로 한 번만 직렬화해둔 JPQL(MemberSearchQueryCache)에 값만 바인딩한다.
+     */
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return searchQueryCache.search(condition, null, null);
+    }
+
+    /**
+     * MemberSort.DEFAULT(member.id) 순으로 앞에서부터 limit 건까지만 읽는다.
+     */
+    public List<MemberTeamDto> search(MemberSearchCondition condition, int limit) {
+        return searchQueryCache.search(condition, null, limit);
+    }
+
+    /**
+     * search() 와 같은 조건을 커서로 읽는다. member.id 순이라 afterId 로 끊긴 지점부터 이어서 읽을 수 있다.
+     * 트랜잭션 안에서 호출하고 다 쓴 Stream 은 반드시 닫아야 커넥션이 반납된다.
+     */
+    public Stream<MemberTeamDto> stream(MemberSearchCondition condition, Long afterId, int fetchSize) {
         return queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -101,10 +128,14 @@ public class MemberJpaRepository {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
+                        usernameIndex.matching(condition.getUsernameContains(), condition.getUsernamePrefix()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                ).fetch();
+                        ageLoe(condition.getAgeLoe()),
+                        afterId != null ? member.id.gt(afterId) : null)
+                .orderBy(member.id.asc())
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .stream();
     }
 
     private BooleanExpression ageLoe(Integer ageLoe) {
@@ -0,0 +1,20 @@
+package com.example.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * QuerydslPredicateExecutor 는 영속 상태의 Member 만 돌려주기 때문에, 직렬화할 때 lazy Team 이 N+1 로 로딩된다.
+ * 같은 Predicate 를 받아서 QMemberTeamDto 같은 프로젝션으로 바로 조회한다.
+ * 프로젝션/조건에서 QTeam.team 을 쓰면 member.team 을 team 으로 left join 한다.
+ */
+public interface MemberProjectionPredicateExecutor {
+
+    <T> List<T> findAll(Predicate predicate, Expression<T> projection);
+
+    <T> Page<T> findAll(Predicate predicate, Pageable pageable, Expression<T> projection);
+}
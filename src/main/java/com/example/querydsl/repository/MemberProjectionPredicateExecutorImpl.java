@@ -0,0 +1,131 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.Member;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.support.Querydsl;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+
+public class MemberProjectionPredicateExecutorImpl implements MemberProjectionPredicateExecutor {
+
+    private final JPAQueryFactory queryFactory;
+    private final Querydsl querydsl;
+
+    public MemberProjectionPredicateExecutorImpl(JPAQueryFactory queryFactory, EntityManager em) {
+        this.queryFactory = queryFactory;
+        this.querydsl = new Querydsl(em, new PathBuilder<>(Member.class, member.getMetadata()));
+    }
+
+    @Override
+    public <T> List<T> findAll(Predicate predicate, Expression<T> projection) {
+        return select(projection, predicate).fetch();
+    }
+
+    @Override
+    public <T> Page<T> findAll(Predicate predicate, Pageable pageable, Expression<T> projection) {
+        List<T> content = querydsl.applyPagination(pageable, select(projection, predicate)).fetch();
+
+        // 카운트는 프로젝션과 무관하게 조건에 필요한 조인만 한다.
+        JPAQuery<Long> countQuery = queryFactory
+                .select(member.count())
+                .from(member);
+        if (TeamAliasDetector.uses(predicate)) {
+            countQuery.leftJoin(member.team, team);
+        }
+        countQuery.where(predicate);
+
+        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+    }
+
+    private <T> JPAQuery<T> select(Expression<T> projection, Predicate predicate) {
+        JPAQuery<T> query = queryFactory
+                .select(projection)
+                .from(member);
+        if (TeamAliasDetector.uses(projection) || TeamAliasDetector.uses(predicate)) {
+            query.leftJoin(member.team, team);
+        }
+        return query.where(predicate);
+    }
+
+    /**
+     * 표현식 트리 안에 QTeam.team 을 루트로 하는 경로가 있는지 찾는다.
+     * 서브쿼리 안쪽까지는 보지 않고, 보수적으로 조인이 필요하다고 본다.
+     */
+    private static class TeamAliasDetector implements Visitor<Boolean, Void> {
+
+        private static final TeamAliasDetector INSTANCE = new TeamAliasDetector();
+
+        static boolean uses(Expression<?> expression) {
+            // 빈 BooleanBuilder 는 null 을 돌려준다.
+            return expression != null && Boolean.TRUE.equals(expression.accept(INSTANCE, null));
+        }
+
+        @Override
+        public Boolean visit(Constant<?> expr, Void context) {
+            return false;
+        }
+
+        @Override
+        public Boolean visit(FactoryExpression<?> expr, Void context) {
+            return anyOf(expr.getArgs());
+        }
+
+        @Override
+        public Boolean visit(Operation<?> expr, Void context) {
+            return anyOf(expr.getArgs());
+        }
+
+        @Override
+        public Boolean visit(ParamExpression<?> expr, Void context) {
+            return false;
+        }
+
+        @Override
+        public Boolean visit(Path<?> expr, Void context) {
+            return team.equals(expr.getRoot());
+        }
+
+        @Override
+        public Boolean visit(SubQueryExpression<?> expr, Void context) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(TemplateExpression<?> expr, Void context) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression<?> expression && uses(expression)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean anyOf(List<Expression<?>> args) {
+            for (Expression<?> arg : args) {
+                if (uses(arg)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
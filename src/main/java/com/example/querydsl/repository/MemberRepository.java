@@ -1,14 +1,35 @@
 package com.example.querydsl.repository;
 
 import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.QMember;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.querydsl.binding.QuerydslBinderCustomizer;
+import org.springframework.data.querydsl.binding.QuerydslBindings;
 
 import java.util.List;
 
+import static com.example.querydsl.entity.QTeam.team;
+
 public interface MemberRepository extends
         JpaRepository<Member, Long>,
         MemberRepositoryQueryDsl,
-        QuerydslPredicateExecutor<Member> {
+        QuerydslPredicateExecutor<Member>,
+        MemberProjectionPredicateExecutor,
+        MemberFetchPlanPredicateExecutor,
+        QuerydslBinderCustomizer<QMember> {
     List<Member> findByUsername(String username);
+
+    @EntityGraph(Member.WITH_TEAM)
+    List<Member> findWithTeamByUsername(String username);
+
+    /**
+     * ?team.name= 조건을 암묵적 inner join(member.team.name) 대신 left join 한 team 별칭으로 걸어서
+     * MemberProjectionPredicateExecutor 의 조인과 겹치지 않게 한다.
+     */
+    @Override
+    default void customize(QuerydslBindings bindings, QMember root) {
+        bindings.bind(root.team.name).first((path, value) -> team.name.eq(value));
+    }
 }
@@ -1,66 +1,67 @@
 package com.example.querydsl.repository;
 
+import com.example.querydsl.config.MemberSearchProperties;
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
-import com.example.querydsl.dto.QMemberTeamDto;
-import com.example.querydsl.entity.Member;
-import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.impl.JPAQuery;
-import com.querydsl.jpa.impl.JPAQueryFactory;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
-import org.springframework.util.StringUtils;
 
 import java.util.List;
 
-import static com.example.querydsl.entity.QMember.member;
-import static com.example.querydsl.entity.QTeam.team;
-
-@RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryQueryDsl {
 
-    private final JPAQueryFactory queryFactory;
+    private final MemberSearchQueryCache searchQueryCache;
+    private final MemberRepositoryQueryDsl delegate;
+    private final MemberSearchProperties.Engine engine;
+
+    public MemberRepositoryImpl(MemberSearchQueryCache searchQueryCache,
+                                MemberSqlSearchRepository sqlEngine,
+                                ObjectProvider<ShardedMemberRepository> shardedEngine,
+                                MemberSearchProperties properties) {
+        this.searchQueryCache = searchQueryCache;
+        this.engine = properties.getEngine();
+        // ShardedMemberRepository 는 engine=sharded 일 때만 빈으로 등록된다.
+        this.delegate = engine == MemberSearchProperties.Engine.SHARDED ? shardedEngine.getObject() : sqlEngine;
+    }
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                ).fetch();
+        if (engine != MemberSearchProperties.Engine.JPA) {
+            return delegate.search(condition);
+        }
+
+        return searchQueryCache.search(condition, null, null);
     }
 
     @Override
     public Page<MemberTeamDto> searchPaging(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> result = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
+        if (engine != MemberSearchProperties.Engine.JPA) {
+            return delegate.searchPaging(condition, pageable);
+        }
+
+        List<MemberTeamDto> result = searchContent(condition, pageable);
+
+        // 만약, 전체 데이터가 100개인데 불러오는 데이터가 100개 이상이면 토탈 카운트를 가져올 필요가 없겠지? 그럴 때 !
+        // 이렇게 PageableExecutionUtils.getPage()의 3번째 인자로 저렇게 JPAQuery 타입으로 주면 필요없는 경우 쿼리를 안 날린다. 최고다.
+        return PageableExecutionUtils.getPage(result, pageable, () -> searchCount(condition));
+    }
+
+    @Override
+    public List<MemberTeamDto> searchContent(MemberSearchCondition condition, Pageable pageable) {
+        if (engine != MemberSearchProperties.Engine.JPA) {
+            return delegate.searchContent(condition, pageable);
+        }
+
+        return searchQueryCache.search(condition, MemberSort.of(pageable.getSort()), pageable.getOffset(), pageable.getPageSize());
+    }
+
+    @Override
+    public long searchCount(MemberSearchCondition condition) {
+        if (engine != MemberSearchProperties.Engine.JPA) {
+            return delegate.searchCount(condition);
+        }
 
         /*int total = queryFactory
                 .select(member)
@@ -74,35 +75,14 @@ public class MemberRepositoryImpl implements MemberRepositoryQueryDsl {
                 .fetch()
                 .size();*/
 
-        // return new PageImpl<>(result, pageable, total);
-
-        JPAQuery<Member> countQuery = queryFactory
-                .select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()));
-
-        // 만약, 전체 데이터가 100개인데 불러오는 데이터가 100개 이상이면 토탈 카운트를 가져올 필요가 없겠지? 그럴 때 !
-        // 이렇게 PageableExecutionUtils.getPage()의 3번째 인자로 저렇게 JPAQuery 타입으로 주면 필요없는 경우 쿼리를 안 날린다. 최고다.
-        return PageableExecutionUtils.getPage(result, pageable, () -> countQuery.stream().count());
-    }
-
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+        return searchQueryCache.count(condition);
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
-    }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
-    }
-
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    /**
+     * JPA 엔진에는 키셋 쿼리 캐시가 없으므로 engine=jpa 여도 같은 기본 DB 를 읽는 SQL 엔진(delegate)으로 보낸다.
+     */
+    @Override
+    public List<MemberTeamDto> searchAfter(MemberSearchCondition condition, Long lastMemberId, int size) {
+        return delegate.searchAfter(condition, lastMemberId, size);
     }
 }
@@ -11,4 +11,20 @@ public interface MemberRepositoryQueryDsl {
     List<MemberTeamDto> search(MemberSearchCondition condition);
 
     Page<MemberTeamDto> searchPaging(MemberSearchCondition condition, Pageable pageable);
+
+    /**
+     * searchPaging 의 내용 쿼리만 실행한다. 전체 건수를 따로(예: 추정치로) 구할 때 쓴다.
+     */
+    List<MemberTeamDto> searchContent(MemberSearchCondition condition, Pageable pageable);
+
+    /**
+     * searchPaging 의 카운트 쿼리만 실행한다.
+     */
+    long searchCount(MemberSearchCondition condition);
+
+    /**
+     * member_id 키셋 페이징. lastMemberId 보다 큰 회원을 member_id 순으로 size 건 돌려준다. 첫 페이지는 lastMemberId 를 null 로 준다.
+     * offset 과 달리 앞 페이지를 읽고 버리지 않으므로 페이지 깊이와 상관없이 비용이 같다.
+     */
+    List<MemberTeamDto> searchAfter(MemberSearchCondition condition, Long lastMemberId, int size);
 }
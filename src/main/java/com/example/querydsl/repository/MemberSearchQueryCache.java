@@ -0,0 +1,252 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.dto.QMemberTeamDto;
+import com.example.querydsl.search.UsernameIndex;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+
+/**
+ * JPA 엔진의 회원 검색 JPQL 캐시. 조건 모양(MemberSearchShape)과 정렬(MemberSort)별로 Querydsl 식 트리를 한 번만 만들어 JPQL 로 직렬화해두고,
+ * 호출마다 파라미터만 바인딩한다. JPQL 문자열이 매번 같으므로 Hibernate 도 쿼리 계획 캐시에서 바로 꺼내 쓴다.
+ * <p>
+ * 값 자리는 Param 으로 비워두고, 결과 행(Object[])은 QMemberTeamDto 로 직접 만든다.
+ * usernameContains/usernamePrefix 는 항상 like 로 걸고, UsernameIndex 가 id 목록을 주면 member.id in ? 을 더 붙이므로 키에 붙였는지를 넣는다.
+ * 색인은 후보를 좁히기만 하므로 색인이 늦어도 결과가 틀리지 않는다. 색인에 맞는 회원이 없으면 쿼리를 실행하지 않고 빈 목록/0건을 돌려준다.
+ * <p>
+ * 캐시 적중률은 member.search.jpql.cache(result=hit|miss), Hibernate 쿼리 계획 캐시는 hibernate.query.plan.cache 로 본다.
+ */
+@Component
+public class MemberSearchQueryCache {
+
+    private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(
+            member.id.as("memberId"),
+            member.username,
+            member.age,
+            team.id.as("teamId"),
+            team.name.as("teamName"));
+
+    private static final Param<String> USERNAME = new Param<>(String.class, "username");
+    private static final Param<String> USERNAME_CONTAINS = new Param<>(String.class, "usernameContains");
+    private static final Param<String> USERNAME_PREFIX = new Param<>(String.class, "usernamePrefix");
+    @SuppressWarnings("unchecked")
+    private static final Param<Collection<Long>> MEMBER_IDS =
+            new Param<>((Class<Collection<Long>>) (Class<?>) Collection.class, "memberIds");
+    private static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+
+    @PersistenceContext
+    EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final UsernameIndex usernameIndex;
+
+    private final Map<Key, CompiledQuery> cache = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public MemberSearchQueryCache(JPAQueryFactory queryFactory,
+                                  UsernameIndex usernameIndex,
+                                  EntityManagerFactory entityManagerFactory,
+                                  MeterRegistry meterRegistry) {
+        this.queryFactory = queryFactory;
+        this.usernameIndex = usernameIndex;
+        this.hits = Counter.builder("member.search.jpql.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("member.search.jpql.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("member.search.jpql.cache.size", cache, Map::size).register(meterRegistry);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Gauge.builder("hibernate.query.plan.cache", statistics, Statistics::getQueryPlanCacheHitCount)
+                .tag("result", "hit").register(meterRegistry);
+        Gauge.builder("hibernate.query.plan.cache", statistics, Statistics::getQueryPlanCacheMissCount)
+                .tag("result", "miss").register(meterRegistry);
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition, Long offset, Integer limit) {
+        return search(condition, MemberSort.DEFAULT, offset, limit);
+    }
+
+    /**
+     * offset/limit 이 null 이면 전체를 읽는다. 페이지는 JPQL 이 아니라 setFirstResult/setMaxResults 로 건다.
+     * 정렬은 항상 member.id 로 끝나므로 같은 조건이면 같은 순서다.
+     */
+    public List<MemberTeamDto> search(MemberSearchCondition condition, MemberSort sort, Long offset, Integer limit) {
+        Bound bound = bind(condition, sort);
+        if (bound == null) {
+            return List.of();
+        }
+        Query query = bound.create(em);
+        if (offset != null) {
+            query.setFirstResult(Math.toIntExact(offset));
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+
+        List<?> rows = query.getResultList();
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(PROJECTION.newInstance((Object[]) row));
+        }
+        return result;
+    }
+
+    public long count(MemberSearchCondition condition) {
+        Bound bound = bind(condition, null);
+        return bound == null ? 0 : ((Number) bound.create(em).getSingleResult()).longValue();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * sort 가 null 이면 카운트 쿼리다. UsernameIndex 가 맞는 회원이 없다고 하면 DB 에 갈 필요가 없으므로 null.
+     */
+    private Bound bind(MemberSearchCondition condition, MemberSort sort) {
+        MemberSearchShape shape = MemberSearchShape.of(condition);
+        Map<Param<?>, Object> values = new HashMap<>();
+        boolean usernameIds = false;
+
+        if (shape.usernameContains() || shape.usernamePrefix()) {
+            long[] ids = usernameIndex.find(condition.getUsernameContains(), condition.getUsernamePrefix());
+            if (ids != null) {
+                if (ids.length == 0) {
+                    return null;
+                }
+                usernameIds = true;
+                values.put(MEMBER_IDS, Arrays.stream(ids).boxed().toList());
+            }
+            if (shape.usernameContains()) {
+                values.put(USERNAME_CONTAINS, "%" + likeEscape(condition.getUsernameContains()) + "%");
+            }
+            if (shape.usernamePrefix()) {
+                values.put(USERNAME_PREFIX, likeEscape(condition.getUsernamePrefix()) + "%");
+            }
+        }
+        if (shape.username()) {
+            values.put(USERNAME, condition.getUsername());
+        }
+        if (shape.teamName()) {
+            values.put(TEAM_NAME, condition.getTeamName());
+        }
+        if (shape.ageGoe()) {
+            values.put(AGE_GOE, condition.getAgeGoe());
+        }
+        if (shape.ageLoe()) {
+            values.put(AGE_LOE, condition.getAgeLoe());
+        }
+
+        Key key = new Key(shape, usernameIds, sort);
+        CompiledQuery compiled = cache.get(key);
+        if (compiled != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            compiled = cache.computeIfAbsent(key, this::compile);
+        }
+        return new Bound(compiled, values);
+    }
+
+    private CompiledQuery compile(Key key) {
+        JPAQuery<?> query = key.count()
+                ? queryFactory.select(member).from(member)
+                : queryFactory.select(PROJECTION).from(member);
+        query.leftJoin(member.team, team).where(predicates(key));
+        if (!key.count()) {
+            query.orderBy(key.sort().jpa());
+        }
+
+        JPQLSerializer serializer = new JPQLSerializer(templates(), em);
+        serializer.serialize(query.getMetadata(), key.count(), null);
+        return new CompiledQuery(serializer.toString(), List.copyOf(serializer.getConstants()));
+    }
+
+    private JPQLTemplates templates() {
+        return JPAProvider.getTemplates(em);
+    }
+
+    private static Predicate[] predicates(Key key) {
+        MemberSearchShape shape = key.shape();
+        return new Predicate[]{
+                shape.username() ? member.username.eq(USERNAME) : null,
+                shape.usernameContains() ? like(USERNAME_CONTAINS) : null,
+                shape.usernamePrefix() ? like(USERNAME_PREFIX) : null,
+                key.usernameIds() ? Expressions.booleanTemplate("{0} in {1}", member.id, MEMBER_IDS) : null,
+                shape.teamName() ? team.name.eq(TEAM_NAME) : null,
+                shape.ageGoe() ? member.age.goe(AGE_GOE) : null,
+                shape.ageLoe() ? member.age.loe(AGE_LOE) : null
+        };
+    }
+
+    private static BooleanExpression like(Expression<String> pattern) {
+        return Expressions.booleanTemplate("lower({0}) like {1} escape '!'", member.username, pattern);
+    }
+
+    /**
+     * JPQLTemplates 의 기본 escape 문자(!)로 와일드카드를 글자 그대로 비교하게 한다.
+     */
+    private static String likeEscape(String value) {
+        return value.toLowerCase(Locale.ROOT)
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+    }
+
+    private record Key(MemberSearchShape shape, boolean usernameIds, MemberSort sort) {
+
+        boolean count() {
+            return sort == null;
+        }
+    }
+
+    /**
+     * constants 는 JPQL 의 ?1, ?2 ... 순서다. 값 자리는 모두 Param 이다.
+     */
+    private record CompiledQuery(String jpql, List<Object> constants) {
+    }
+
+    private record Bound(CompiledQuery compiled, Map<Param<?>, Object> values) {
+
+        Query create(EntityManager em) {
+            Query query = em.createQuery(compiled.jpql());
+            List<Object> constants = compiled.constants();
+            for (int i = 0; i < constants.size(); i++) {
+                Object constant = constants.get(i);
+                query.setParameter(i + 1, constant instanceof Param<?> param ? values.get(param) : constant);
+            }
+            return query;
+        }
+    }
+}
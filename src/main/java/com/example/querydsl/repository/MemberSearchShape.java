@@ -0,0 +1,46 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import org.springframework.util.StringUtils;
+
+/**
+ * MemberSearchCondition 에서 어떤 필터가 들어있는지만 나타내는 키.
+ * 값이 달라도 모양이 같으면 같은 SQL 이 만들어지므로 쿼리 템플릿 캐시의 키로 쓴다.
+ */
+public record MemberSearchShape(boolean username, boolean usernameContains, boolean usernamePrefix,
+                                boolean teamName, boolean ageGoe, boolean ageLoe) {
+
+    public static MemberSearchShape of(MemberSearchCondition condition) {
+        return new MemberSearchShape(
+                StringUtils.hasText(condition.getUsername()),
+                StringUtils.hasText(condition.getUsernameContains()),
+                StringUtils.hasText(condition.getUsernamePrefix()),
+                StringUtils.hasText(condition.getTeamName()),
+                condition.getAgeGoe() != null,
+                condition.getAgeLoe() != null);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (username) {
+            sb.append("username,");
+        }
+        if (usernameContains) {
+            sb.append("usernameContains,");
+        }
+        if (usernamePrefix) {
+            sb.append("usernamePrefix,");
+        }
+        if (teamName) {
+            sb.append("teamName,");
+        }
+        if (ageGoe) {
+            sb.append("ageGoe,");
+        }
+        if (ageLoe) {
+            sb.append("ageLoe,");
+        }
+        return sb.isEmpty() ? "none" : sb.substring(0, sb.length() - 1);
+    }
+}
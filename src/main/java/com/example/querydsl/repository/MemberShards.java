@@ -0,0 +1,110 @@
+package com.example.querydsl.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Member 를 team_id 해시로 나눠 담는 샤드 묶음.
+ * member 는 팀이 속한 샤드 한 곳에만 있고(팀이 없으면 0번 샤드), team 은 조인과 팀 이름 라우팅을 위해 모든 샤드에 복제한다.
+ */
+public class MemberShards implements AutoCloseable {
+
+    private static final List<String> SCHEMA = List.of(
+            "create table if not exists team (team_id bigint primary key, name varchar(255))",
+            "create table if not exists member (member_id bigint primary key, age integer not null, team_id bigint, username varchar(255))",
+            "create index if not exists member_team_id_idx on member (team_id)",
+            // MemberSort 가 허용하는 정렬 키는 기본 DB 와 같은 인덱스를 둔다.
+            "create index if not exists member_username_idx on member (username)",
+            "create index if not exists member_age_idx on member (age)",
+            "create index if not exists team_name_idx on team (name)");
+
+    private final List<HikariDataSource> dataSources;
+    private final List<JdbcTemplate> shards;
+    private final List<TransactionTemplate> transactions;
+    private final List<Integer> all;
+    private final ExecutorService executor;
+
+    public MemberShards(List<HikariDataSource> dataSources) {
+        this.dataSources = List.copyOf(dataSources);
+        this.shards = dataSources.stream().map(JdbcTemplate::new).toList();
+        this.transactions = dataSources.stream()
+                .map(dataSource -> new TransactionTemplate(new DataSourceTransactionManager(dataSource)))
+                .toList();
+        this.all = IntStream.range(0, shards.size()).boxed().toList();
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("member-shard-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newFixedThreadPool(shards.size(), threadFactory);
+    }
+
+    public void createSchema() {
+        for (JdbcTemplate shard : shards) {
+            SCHEMA.forEach(shard::execute);
+        }
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public List<Integer> all() {
+        return all;
+    }
+
+    public JdbcTemplate shard(int index) {
+        return shards.get(index);
+    }
+
+    /**
+     * index 샤드의 한 트랜잭션 안에서 work 를 실행한다. work 가 받은 JdbcTemplate 의 문장은 모두 같이 커밋된다.
+     */
+    public void inTransaction(int index, Consumer<JdbcTemplate> work) {
+        transactions.get(index).executeWithoutResult(status -> work.accept(shards.get(index)));
+    }
+
+    public int shardOf(Long teamId) {
+        return teamId == null ? 0 : Math.floorMod(Long.hashCode(teamId), shards.size());
+    }
+
+    /**
+     * targets 샤드에 같은 작업을 병렬로 실행하고 targets 순서대로 결과를 돌려준다.
+     * 샤드가 하나면 스레드를 넘기지 않고 호출한 스레드에서 바로 실행한다.
+     */
+    public <T> List<T> execute(List<Integer> targets, Function<JdbcTemplate, T> work) {
+        if (targets.size() == 1) {
+            return Collections.singletonList(work.apply(shards.get(targets.get(0))));
+        }
+
+        List<CompletableFuture<T>> futures = targets.stream()
+                .map(index -> CompletableFuture.supplyAsync(() -> work.apply(shards.get(index)), executor))
+                .toList();
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        dataSources.forEach(HikariDataSource::close);
+    }
+}
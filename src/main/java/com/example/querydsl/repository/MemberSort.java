@@ -0,0 +1,153 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.QMember;
+import com.example.querydsl.entity.QTeam;
+import com.example.querydsl.sql.SMember;
+import com.example.querydsl.sql.STeam;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * searchPaging 의 Pageable 정렬. 인덱스가 있는 컬럼(Key)만 허용하고, 나머지는 filesort 로 전체를 읽게 되므로
+ * UnsupportedSortException(400)으로 거절한다. 대소문자 무시 정렬도 lower() 때문에 인덱스를 못 타서 거절한다.
+ * <p>
+ * 결과가 항상 같은 순서가 되도록 member_id 를 마지막 정렬 키로 붙인다. (정렬 키, member_id) 는 유일하므로 키셋 페이징에도 쓸 수 있다.
+ * null(팀 없는 회원의 팀 이름 등)은 방향과 상관없이 뒤로 보낸다. 샤드 병합도 comparator() 로 같은 순서를 따른다.
+ * 모양이 같은 정렬은 같은 쿼리가 되므로 쿼리 캐시의 키로 쓴다.
+ */
+public record MemberSort(List<Order> orders) {
+
+    public static final MemberSort DEFAULT = new MemberSort(List.of());
+
+    public MemberSort {
+        orders = List.copyOf(orders);
+    }
+
+    public static MemberSort of(Sort sort) {
+        if (sort == null || sort.isUnsorted()) {
+            return DEFAULT;
+        }
+
+        List<Order> orders = new ArrayList<>();
+        Set<Key> seen = EnumSet.noneOf(Key.class);
+        for (Sort.Order order : sort) {
+            Key key = Key.of(order.getProperty());
+            if (key == null) {
+                throw new UnsupportedSortException("sort by '" + order.getProperty() + "' is not backed by an index, use one of "
+                        + Arrays.stream(Key.values()).map(Key::property).collect(Collectors.joining(", ")));
+            }
+            if (order.isIgnoreCase()) {
+                throw new UnsupportedSortException("case-insensitive sort by '" + order.getProperty() + "' cannot use an index");
+            }
+            if (seen.add(key)) {
+                orders.add(new Order(key, order.isAscending()));
+            }
+        }
+        return new MemberSort(orders);
+    }
+
+    /**
+     * 요청한 정렬 뒤에 member_id 를 붙인 실제 정렬 순서.
+     */
+    public List<Order> withTieBreaker() {
+        if (orders.stream().anyMatch(order -> order.key() == Key.MEMBER_ID)) {
+            return orders;
+        }
+        List<Order> all = new ArrayList<>(orders);
+        all.add(new Order(Key.MEMBER_ID, true));
+        return all;
+    }
+
+    public OrderSpecifier<?>[] jpa() {
+        return withTieBreaker().stream()
+                .map(order -> specifier(order.key().jpaPath, order.ascending()))
+                .toArray(OrderSpecifier<?>[]::new);
+    }
+
+    public OrderSpecifier<?>[] sql() {
+        return withTieBreaker().stream()
+                .map(order -> specifier(order.key().sqlPath, order.ascending()))
+                .toArray(OrderSpecifier<?>[]::new);
+    }
+
+    /**
+     * DB 정렬과 같은 순서. H2 의 문자열 비교는 String.compareTo 와 같다.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Comparator<MemberTeamDto> comparator() {
+        Comparator<MemberTeamDto> comparator = (a, b) -> 0;
+        for (Order order : withTieBreaker()) {
+            Function<MemberTeamDto, Comparable<?>> value = order.key().value;
+            comparator = comparator.thenComparing((a, b) -> {
+                Comparable x = value.apply(a);
+                Comparable y = value.apply(b);
+                if (x == null || y == null) {
+                    return x == y ? 0 : x == null ? 1 : -1;
+                }
+                int compared = x.compareTo(y);
+                return order.ascending() ? compared : -compared;
+            });
+        }
+        return comparator;
+    }
+
+    private static OrderSpecifier<?> specifier(ComparableExpressionBase<?> path, boolean ascending) {
+        return (ascending ? path.asc() : path.desc()).nullsLast();
+    }
+
+    public record Order(Key key, boolean ascending) {
+    }
+
+    /**
+     * 정렬 키는 MemberTeamDto 의 필드 이름이다. 각 키는 인덱스가 있는 컬럼에 대응한다.
+     */
+    public enum Key {
+        // 기본키
+        MEMBER_ID("memberId", QMember.member.id, SMember.member.memberId, MemberTeamDto::getMemberId),
+        // member_username_idx
+        USERNAME("username", QMember.member.username, SMember.member.username, MemberTeamDto::getUsername),
+        // member_age_idx
+        AGE("age", QMember.member.age, SMember.member.age, MemberTeamDto::getAge),
+        // 외래키 인덱스(member_team_id_idx)
+        TEAM_ID("teamId", QTeam.team.id, SMember.member.teamId, MemberTeamDto::getTeamId),
+        // team_name_idx
+        TEAM_NAME("teamName", QTeam.team.name, STeam.team.name, MemberTeamDto::getTeamName);
+
+        private final String property;
+        private final ComparableExpressionBase<?> jpaPath;
+        private final ComparableExpressionBase<?> sqlPath;
+        private final Function<MemberTeamDto, Comparable<?>> value;
+
+        Key(String property, ComparableExpressionBase<?> jpaPath, ComparableExpressionBase<?> sqlPath,
+            Function<MemberTeamDto, Comparable<?>> value) {
+            this.property = property;
+            this.jpaPath = jpaPath;
+            this.sqlPath = sqlPath;
+            this.value = value;
+        }
+
+        public String property() {
+            return property;
+        }
+
+        static Key of(String property) {
+            for (Key key : values()) {
+                if (key.property.equals(property)) {
+                    return key;
+                }
+            }
+            return null;
+        }
+    }
+}
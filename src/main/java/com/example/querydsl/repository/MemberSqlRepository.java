@@ -0,0 +1,83 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberRankDto;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.WindowFunction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static com.example.querydsl.sql.SMember.member;
+import static com.example.querydsl.sql.STeam.team;
+
+/**
+ * "팀별 최고령 N명", "팀 내 나이 순위" 처럼 상관 서브쿼리로 풀면 멤버마다 서브쿼리가 도는 질의를
+ * ROW_NUMBER()/RANK() 윈도우 함수로 한 번의 스캔에 처리한다.
+ */
+@Repository
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class MemberSqlRepository {
+
+    private final SQLQueryFactory sqlQueryFactory;
+
+    public List<MemberRankDto> findOldestPerTeam(int limit) {
+        SubQueryExpression<Tuple> numbered = SQLExpressions
+                .select(member.memberId,
+                        member.username,
+                        member.age,
+                        member.teamId,
+                        SQLExpressions.rowNumber()
+                                .over()
+                                .partitionBy(member.teamId)
+                                .orderBy(member.age.desc(), member.memberId.asc())
+                                .as("rn"))
+                .from(member);
+
+        PathBuilder<Object> ranked = new PathBuilder<>(Object.class, "ranked");
+        NumberPath<Long> rankedTeamId = ranked.getNumber("team_id", Long.class);
+        NumberPath<Long> rowNumber = ranked.getNumber("rn", Long.class);
+
+        return sqlQueryFactory
+                .select(Projections.constructor(MemberRankDto.class,
+                        ranked.getNumber("member_id", Long.class),
+                        ranked.getString("username"),
+                        ranked.getNumber("age", Integer.class),
+                        rankedTeamId,
+                        team.name,
+                        rowNumber))
+                .from(numbered, ranked)
+                .leftJoin(team).on(team.teamId.eq(rankedTeamId))
+                .where(rowNumber.loe((long) limit))
+                .orderBy(rankedTeamId.asc(), rowNumber.asc())
+                .fetch();
+    }
+
+    public List<MemberRankDto> findAgeRankWithinTeam() {
+        WindowFunction<Long> ageRank = SQLExpressions.rank()
+                .over()
+                .partitionBy(member.teamId)
+                .orderBy(member.age.desc());
+
+        return sqlQueryFactory
+                .select(Projections.constructor(MemberRankDto.class,
+                        member.memberId,
+                        member.username,
+                        member.age,
+                        member.teamId,
+                        team.name,
+                        ageRank))
+                .from(member)
+                .leftJoin(team).on(team.teamId.eq(member.teamId))
+                .orderBy(member.teamId.asc(), member.age.desc(), member.memberId.asc())
+                .fetch();
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.search.UsernameIndex;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.querydsl.sql.SMember.member;
+import static com.example.querydsl.sql.STeam.team;
+
+/**
+ * MemberRepositoryQueryDsl 의 SQL 엔진. JPQL 파싱, Hibernate SQL 생성, 엔티티/ResultTransformer 를 거치지 않고
+ * 조건 모양(MemberSearchShape)과 정렬(MemberSort)별로 한 번만 만든 SQL 에 파라미터만 바인딩해서 MemberTeamDto 로 바로 매핑한다.
+ * usernameContains/usernamePrefix 는 JPA 엔진처럼 UsernameIndex 의 후보 id 를 member_id = any(?) 배열 하나로 붙이므로
+ * 후보 수가 달라도 SQL 은 그대로다. 색인에 맞는 회원이 없으면 DB 에 가지 않는다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberSqlSearchRepository implements MemberRepositoryQueryDsl {
+
+    static final RowMapper<MemberTeamDto> ROW_MAPPER = (rs, rowNum) -> new MemberTeamDto(
+            rs.getLong(1),
+            rs.getString(2),
+            rs.getInt(3),
+            rs.getObject(4, Long.class),
+            rs.getString(5));
+
+    @PersistenceContext
+    EntityManager em;
+    private final SQLQueryFactory sqlQueryFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final UsernameIndex usernameIndex;
+
+    private final Map<SearchKey, String> searchSql = new ConcurrentHashMap<>();
+    private final Map<Filter, String> searchAfterSql = new ConcurrentHashMap<>();
+    private final Map<Filter, String> countSql = new ConcurrentHashMap<>();
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        flushPendingChanges();
+        Bound bound = bind(usernameIndex, condition);
+        if (bound == null) {
+            return List.of();
+        }
+        SearchKey key = new SearchKey(bound.filter(), MemberSort.DEFAULT);
+        String sql = searchSql.computeIfAbsent(key, this::buildSearchSql);
+        return jdbcTemplate.query(sql, ROW_MAPPER, bound.bindings().toArray());
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPaging(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = searchContent(condition, pageable);
+        return PageableExecutionUtils.getPage(content, pageable, () -> searchCount(condition));
+    }
+
+    @Override
+    public List<MemberTeamDto> searchContent(MemberSearchCondition condition, Pageable pageable) {
+        MemberSort sort = MemberSort.of(pageable.getSort());
+        flushPendingChanges();
+        Bound bound = bind(usernameIndex, condition);
+        if (bound == null) {
+            return List.of();
+        }
+        List<Object> pageBindings = bound.bindings();
+        pageBindings.add(pageable.getPageSize());
+        pageBindings.add(pageable.getOffset());
+        SearchKey key = new SearchKey(bound.filter(), sort);
+        String sql = searchSql.computeIfAbsent(key, this::buildSearchSql) + "\nlimit ? offset ?";
+        return jdbcTemplate.query(sql, ROW_MAPPER, pageBindings.toArray());
+    }
+
+    @Override
+    public long searchCount(MemberSearchCondition condition) {
+        flushPendingChanges();
+        Bound bound = bind(usernameIndex, condition);
+        if (bound == null) {
+            return 0;
+        }
+        String count = countSql.computeIfAbsent(bound.filter(), this::buildCountSql);
+        return jdbcTemplate.queryForObject(count, Long.class, bound.bindings().toArray());
+    }
+
+    @Override
+    public List<MemberTeamDto> searchAfter(MemberSearchCondition condition, Long lastMemberId, int size) {
+        flushPendingChanges();
+        Bound bound = bind(usernameIndex, condition);
+        if (bound == null) {
+            return List.of();
+        }
+        List<Object> bindings = bound.bindings();
+        String sql;
+        if (lastMemberId == null) {
+            sql = searchSql.computeIfAbsent(new SearchKey(bound.filter(), MemberSort.DEFAULT), this::buildSearchSql);
+        } else {
+            sql = searchAfterSql.computeIfAbsent(bound.filter(), key -> buildSearchSql(new SearchKey(key, MemberSort.DEFAULT), true));
+            bindings.add(lastMemberId);
+        }
+        bindings.add(size);
+        return jdbcTemplate.query(sql + "\nlimit ?", ROW_MAPPER, bindings.toArray());
+    }
+
+    /**
+     * JPQL 실행 전 auto flush 와 같은 결과를 보장하기 위해, 트랜잭션 안이면 쓰기 지연된 변경을 먼저 내보낸다.
+     */
+    private void flushPendingChanges() {
+        if (em.isJoinedToTransaction()) {
+            em.flush();
+        }
+    }
+
+    private String buildSearchSql(SearchKey key) {
+        return buildSearchSql(key, false);
+    }
+
+    /**
+     * after 면 조건 뒤에 member_id > ? 를 붙인다. 바인딩은 bindings() 다음에 lastMemberId 가 온다.
+     */
+    private String buildSearchSql(SearchKey key, boolean after) {
+        SQLQuery<?> query = sqlQueryFactory
+                .select(member.memberId, member.username, member.age, team.teamId, team.name)
+                .from(member)
+                .leftJoin(team).on(team.teamId.eq(member.teamId))
+                .where(predicates(key.filter()));
+        if (after) {
+            query.where(member.memberId.gt(0L));
+        }
+        return query.orderBy(key.sort().sql()).getSQL().getSQL();
+    }
+
+    /**
+     * 카운트는 팀 이름 조건이 있을 때만 team 을 조인한다. member -> team 은 to-one 이라 left join 이 건수를 바꾸지 않는다.
+     */
+    private String buildCountSql(Filter filter) {
+        SQLQuery<?> query = sqlQueryFactory
+                .select(member.memberId.count())
+                .from(member);
+        if (filter.shape().teamName()) {
+            query.leftJoin(team).on(team.teamId.eq(member.teamId));
+        }
+        return query.where(predicates(filter)).getSQL().getSQL();
+    }
+
+    /**
+     * 모양만 같으면 되므로 값 자리에는 아무 상수나 넣는다. 바인딩 순서는 bind() 와 같아야 한다.
+     * 같은 SQL 을 샤드마다 실행하는 ShardedMemberRepository 도 이 규칙을 그대로 쓴다.
+     */
+    static BooleanExpression[] predicates(Filter filter) {
+        MemberSearchShape shape = filter.shape();
+        return new BooleanExpression[]{
+                shape.username() ? member.username.eq("") : null,
+                shape.usernameContains() ? member.username.lower().like("") : null,
+                shape.usernamePrefix() ? member.username.lower().like("") : null,
+                filter.usernameIds()
+                        ? Expressions.booleanTemplate("{0} = any({1})", member.memberId, Expressions.constant(new Long[0]))
+                        : null,
+                shape.teamName() ? team.name.eq("") : null,
+                shape.ageGoe() ? member.age.goe(0) : null,
+                shape.ageLoe() ? member.age.loe(0) : null
+        };
+    }
+
+    /**
+     * 조건 값을 predicates() 순서로 늘어놓는다. UsernameIndex 에 맞는 회원이 없으면 null 이다.
+     * 색인이 준비되지 않았거나 후보가 너무 많으면 like 만 건다. 돌려준 bindings 는 호출한 쪽이 limit 등을 더 붙여도 된다.
+     */
+    static Bound bind(UsernameIndex usernameIndex, MemberSearchCondition condition) {
+        MemberSearchShape shape = MemberSearchShape.of(condition);
+        long[] ids = shape.usernameContains() || shape.usernamePrefix()
+                ? usernameIndex.find(condition.getUsernameContains(), condition.getUsernamePrefix())
+                : null;
+        if (ids != null && ids.length == 0) {
+            return null;
+        }
+
+        List<Object> bindings = new ArrayList<>(7);
+        if (shape.username()) {
+            bindings.add(condition.getUsername());
+        }
+        if (shape.usernameContains()) {
+            bindings.add("%" + likeEscape(condition.getUsernameContains()) + "%");
+        }
+        if (shape.usernamePrefix()) {
+            bindings.add(likeEscape(condition.getUsernamePrefix()) + "%");
+        }
+        if (ids != null) {
+            bindings.add(Arrays.stream(ids).boxed().toArray(Long[]::new));
+        }
+        if (shape.teamName()) {
+            bindings.add(condition.getTeamName());
+        }
+        if (shape.ageGoe()) {
+            bindings.add(condition.getAgeGoe());
+        }
+        if (shape.ageLoe()) {
+            bindings.add(condition.getAgeLoe());
+        }
+        return new Bound(new Filter(shape, ids != null), bindings);
+    }
+
+    /**
+     * SQL 모양. usernameIds 면 UsernameIndex 후보 id 배열 자리가 있다.
+     */
+    record Filter(MemberSearchShape shape, boolean usernameIds) {
+    }
+
+    record Bound(Filter filter, List<Object> bindings) {
+    }
+
+    private record SearchKey(Filter filter, MemberSort sort) {
+    }
+
+    /**
+     * H2 의 기본 LIKE escape 문자(\)로 와일드카드를 글자 그대로 비교하게 한다.
+     */
+    private static String likeEscape(String value) {
+        return value.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * 커밋된 Member/Team 변경을 ShardedMemberRepository 로 보낸다. 롤백된 변경은 샤드에 가지 않는다.
+ * 기본 DB 는 이미 커밋됐으므로 샤드 쓰기가 실패해도 예외를 올리지 않고 로그만 남긴다.
+ */
+@Slf4j
+class ShardReplicationEventListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    private final ShardedMemberRepository repository;
+
+    ShardReplicationEventListener(ShardedMemberRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        replicate(event.getEntity(), event.getId(), () -> {
+            if (event.getEntity() instanceof Team team) {
+                repository.saveTeam(team.getId(), team.getName());
+            } else {
+                String[] names = event.getPersister().getPropertyNames();
+                Long teamId = teamId(names, event.getState());
+                repository.saveMember((Long) event.getId(), username(names, event.getState()), age(names, event.getState()),
+                        teamId, teamId);
+            }
+        });
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        replicate(event.getEntity(), event.getId(), () -> {
+            if (event.getEntity() instanceof Team team) {
+                repository.saveTeam(team.getId(), team.getName());
+                return;
+            }
+            String[] names = event.getPersister().getPropertyNames();
+            Object[] state = event.getState();
+            if (event.getOldState() == null) {
+                // merge 된 detached 엔티티는 이전 값을 모르므로 다른 샤드도 지운다.
+                repository.saveMember((Long) event.getId(), username(names, state), age(names, state), teamId(names, state));
+            } else {
+                repository.saveMember((Long) event.getId(), username(names, state), age(names, state), teamId(names, state),
+                        teamId(names, event.getOldState()));
+            }
+        });
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        replicate(event.getEntity(), event.getId(), () -> {
+            if (event.getEntity() instanceof Team) {
+                repository.deleteTeam((Long) event.getId());
+            } else {
+                repository.deleteMember((Long) event.getId(),
+                        teamId(event.getPersister().getPropertyNames(), event.getDeletedState()));
+            }
+        });
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return persister.getMappedClass() == Member.class || persister.getMappedClass() == Team.class;
+    }
+
+    private static void replicate(Object entity, Object id, Runnable write) {
+        if (!(entity instanceof Member) && !(entity instanceof Team)) {
+            return;
+        }
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            log.error("could not replicate committed {} {} to the member shards", entity.getClass().getSimpleName(), id, e);
+        }
+    }
+
+    private static Long teamId(String[] names, Object[] state) {
+        Object team = state[indexOf(names, "team")];
+        return team != null ? ((Team) team).getId() : null;
+    }
+
+    private static String username(String[] names, Object[] state) {
+        return (String) state[indexOf(names, "username")];
+    }
+
+    private static int age(String[] names, Object[] state) {
+        return (Integer) state[indexOf(names, "age")];
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Member has no property " + name);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.querydsl.repository;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * SessionFactory 가 만들어질 때 ShardReplicationEventListener 를 커밋 후 이벤트로 등록한다.
+ * engine=sharded 일 때만 ShardingConfig 가 빈으로 만든다.
+ */
+public class ShardReplicationIntegrator implements Integrator {
+
+    private final ShardedMemberRepository repository;
+
+    public ShardReplicationIntegrator(ShardedMemberRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        ShardReplicationEventListener listener = new ShardReplicationEventListener(repository);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
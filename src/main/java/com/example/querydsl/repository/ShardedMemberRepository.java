@@ -0,0 +1,494 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.MemberSqlSearchRepository.Bound;
+import com.example.querydsl.repository.MemberSqlSearchRepository.Filter;
+import com.example.querydsl.search.UsernameIndex;
+import com.example.querydsl.version.DataVersion;
+import com.example.querydsl.version.MemberTableWriteListener;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.SQLQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import static com.example.querydsl.sql.SMember.member;
+import static com.example.querydsl.sql.STeam.team;
+
+/**
+ * team_id 해시로 나눈 MemberShards 위의 MemberRepositoryQueryDsl 구현.
+ * 팀 이름 조건이 있으면 그 팀이 있는 샤드에만, 없으면 모든 샤드에 병렬로 SQL 엔진과 같은 SQL 을 보낸다.
+ * 팀 이름으로 샤드를 고르는 표는 메모리에 두고 팀이 바뀔 때(saveTeam/deleteTeam/resync)만 다시 읽는다.
+ * usernameContains/usernamePrefix 는 SQL 엔진과 같이 UsernameIndex 후보 id 를 붙인다. 색인은 기본 DB 의 member_id 로 만들고
+ * 샤드는 같은 member_id 를 그대로 가지므로 후보를 모든 샤드에 같이 보내면 된다.
+ * 샤드별 결과는 요청한 정렬(MemberSort, 기본은 member_id) 순으로 받아 k-way merge 하고, 카운트는 샤드별 카운트를 더한다.
+ * 샤드 쓰기는 Hibernate 를 거치지 않으므로 쓸 때마다 DataVersion 을 직접 올린다.
+ * <p>
+ * 쓰기는 커밋된 뒤에 샤드로 보낸다. 회원은 team_id 해시로 정한 샤드 한 곳에, 팀은 조인과 팀 이름 라우팅을 위해 모든 샤드에 쓴다.
+ * <ul>
+ *     <li>엔티티 flush: ShardReplicationEventListener 가 커밋 후 이벤트로 saveTeam/saveMember/delete* 를 부른다.</li>
+ *     <li>write-behind, 대량 적재: 커밋한 뒤 updateMembers/saveMembers 를 직접 부른다.</li>
+ *     <li>JPQL/Querydsl/native 벌크 연산: 바뀐 행을 알 수 없으므로 커밋 뒤에 기본 DB 의 team/member 를 다시 읽어 샤드를 맞춘다(resync).
+ *     그동안 다른 샤드 쓰기는 기다리므로 resync 가 읽은 뒤에 커밋된 변경이 덮이지 않는다.</li>
+ * </ul>
+ * 기본 DB 는 JPA 엔티티(id 시퀀스, 연관관계)의 원본이라 모든 행을 그대로 갖고, 샤드는 검색을 나눠 받는 사본이다.
+ * 샤드 간, 기본 DB 와 샤드 간 트랜잭션은 없다. 기본 DB 커밋 뒤에 샤드 쓰기가 실패하면 그 변경은 로그만 남고 다음 쓰기나 resync 때 맞춰진다.
+ */
+@Slf4j
+public class ShardedMemberRepository implements MemberRepositoryQueryDsl, MemberTableWriteListener, AutoCloseable {
+
+    private static final String MERGE_TEAM = "merge into team (team_id, name) key (team_id) values (?, ?)";
+    private static final String DELETE_TEAM = "delete from team where team_id = ?";
+    private static final String MERGE_MEMBER = "merge into member (member_id, username, age, team_id) key (member_id) values (?, ?, ?, ?)";
+    private static final String UPDATE_MEMBER =
+            "update member set age = coalesce(?, age), username = coalesce(?, username) where member_id = ?";
+    private static final String DELETE_MEMBER = "delete from member where member_id = ?";
+    private static final int RESYNC_BATCH_SIZE = 1_000;
+
+    private final MemberShards shards;
+    private final Configuration configuration;
+    private final DataVersion dataVersion;
+    private final JdbcTemplate source;
+    private final UsernameIndex usernameIndex;
+    private final int maxOffset;
+
+    private final Map<SearchKey, String> searchSql = new ConcurrentHashMap<>();
+    private final Map<Filter, String> searchAfterSql = new ConcurrentHashMap<>();
+    private final Map<Filter, String> countSql = new ConcurrentHashMap<>();
+
+    // 행 단위 쓰기는 read lock 으로 서로 막지 않고, resync 만 write lock 으로 혼자 돈다.
+    private final ReentrantReadWriteLock replication = new ReentrantReadWriteLock();
+    private final ExecutorService resyncer;
+    private final AtomicBoolean resyncQueued = new AtomicBoolean();
+
+    // 팀 이름 -> team_id. teamIds 가 null 이면 다음 조회 때 0번 샤드에서 다시 읽는다.
+    private final AtomicReference<TeamRoutes> teamRoutes = new AtomicReference<>(new TeamRoutes(0, null));
+
+    /**
+     * @param source    기본 DB. 벌크 연산 뒤 resync 할 때만 읽는다.
+     * @param maxOffset 이보다 깊은 offset 페이지는 DeepOffsetException 으로 거절한다.
+     */
+    public ShardedMemberRepository(MemberShards shards, Configuration configuration, DataVersion dataVersion, JdbcTemplate source,
+                                   UsernameIndex usernameIndex, int maxOffset) {
+        this.shards = shards;
+        this.configuration = configuration;
+        this.dataVersion = dataVersion;
+        this.source = source;
+        this.usernameIndex = usernameIndex;
+        this.maxOffset = maxOffset;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("member-shard-resync-");
+        threadFactory.setDaemon(true);
+        this.resyncer = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        Bound bound = MemberSqlSearchRepository.bind(usernameIndex, condition);
+        List<Integer> targets = bound == null ? List.of() : shardsFor(condition);
+        if (targets.isEmpty()) {
+            return List.of();
+        }
+
+        String sql = searchSql.computeIfAbsent(new SearchKey(bound.filter(), MemberSort.DEFAULT), this::buildSearchSql);
+        Object[] bindings = bound.bindings().toArray();
+        return mergeByMemberId(shards.execute(targets,
+                jdbc -> jdbc.query(sql, MemberSqlSearchRepository.ROW_MAPPER, bindings)), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPaging(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = searchContent(condition, pageable);
+        return PageableExecutionUtils.getPage(content, pageable, () -> searchCount(condition));
+    }
+
+    /**
+     * offset 페이징은 각 샤드에서 offset + size 건씩 가져와 합친 뒤 앞을 버린다.
+     * 뒤 페이지로 갈수록 샤드 수만큼 버리는 행이 늘어나므로 maxOffset 보다 깊은 페이지는 거절하고 searchAfter 로 보낸다.
+     * 정렬이 있으면 샤드마다 같은 순서로 받아서 그 순서대로 합친다.
+     */
+    @Override
+    public List<MemberTeamDto> searchContent(MemberSearchCondition condition, Pageable pageable) {
+        if (pageable.getOffset() > maxOffset) {
+            throw new DeepOffsetException("offset " + pageable.getOffset() + " is deeper than querydsl.sharding.max-offset "
+                    + maxOffset + ", page with GET /v2/members/after?lastMemberId=<last memberId> instead");
+        }
+
+        Bound bound = MemberSqlSearchRepository.bind(usernameIndex, condition);
+        List<Integer> targets = bound == null ? List.of() : shardsFor(condition);
+        if (targets.isEmpty()) {
+            return List.of();
+        }
+
+        int limit = Math.toIntExact(pageable.getOffset() + pageable.getPageSize());
+        List<Object> pageBindings = bound.bindings();
+        pageBindings.add(limit);
+        MemberSort sort = MemberSort.of(pageable.getSort());
+        String sql = searchSql.computeIfAbsent(new SearchKey(bound.filter(), sort), this::buildSearchSql) + "\nlimit ?";
+        List<MemberTeamDto> merged = merge(shards.execute(targets,
+                jdbc -> jdbc.query(sql, MemberSqlSearchRepository.ROW_MAPPER, pageBindings.toArray())), sort.comparator(), limit);
+        return merged.subList(Math.min((int) pageable.getOffset(), merged.size()), merged.size());
+    }
+
+    /**
+     * 샤드별 카운트를 병렬로 구해서 더한다.
+     */
+    @Override
+    public long searchCount(MemberSearchCondition condition) {
+        Bound bound = MemberSqlSearchRepository.bind(usernameIndex, condition);
+        List<Integer> targets = bound == null ? List.of() : shardsFor(condition);
+        if (targets.isEmpty()) {
+            return 0;
+        }
+
+        String count = countSql.computeIfAbsent(bound.filter(), this::buildCountSql);
+        Object[] bindings = bound.bindings().toArray();
+        return shards.execute(targets, jdbc -> jdbc.queryForObject(count, Long.class, bindings))
+                .stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * member_id 키셋 페이징. lastMemberId 보다 큰 회원을 member_id 순으로 size 건 돌려준다.
+     * 각 샤드가 size 건만 읽으면 되므로 페이지 깊이와 상관없이 비용이 같다. 첫 페이지는 lastMemberId 를 null 로 준다.
+     */
+    @Override
+    public List<MemberTeamDto> searchAfter(MemberSearchCondition condition, Long lastMemberId, int size) {
+        Bound bound = MemberSqlSearchRepository.bind(usernameIndex, condition);
+        List<Integer> targets = bound == null ? List.of() : shardsFor(condition);
+        if (targets.isEmpty()) {
+            return List.of();
+        }
+
+        List<Object> bindings = bound.bindings();
+        String sql;
+        if (lastMemberId == null) {
+            sql = searchSql.computeIfAbsent(new SearchKey(bound.filter(), MemberSort.DEFAULT), this::buildSearchSql) + "\nlimit ?";
+        } else {
+            sql = searchAfterSql.computeIfAbsent(bound.filter(),
+                    key -> buildSearchSql(new SearchKey(key, MemberSort.DEFAULT), true)) + "\nlimit ?";
+            bindings.add(lastMemberId);
+        }
+        bindings.add(size);
+
+        Object[] args = bindings.toArray();
+        return mergeByMemberId(shards.execute(targets,
+                jdbc -> jdbc.query(sql, MemberSqlSearchRepository.ROW_MAPPER, args)), size);
+    }
+
+    /**
+     * 팀은 모든 샤드에 복제한다.
+     */
+    public void saveTeam(Long teamId, String name) {
+        replicate(() -> {
+            shards.execute(shards.all(), jdbc -> jdbc.update(MERGE_TEAM, teamId, name));
+            invalidateTeamRoutes();
+        });
+    }
+
+    public void deleteTeam(Long teamId) {
+        replicate(() -> {
+            shards.execute(shards.all(), jdbc -> jdbc.update(DELETE_TEAM, teamId));
+            invalidateTeamRoutes();
+        });
+    }
+
+    /**
+     * 이전 팀을 모를 때 쓴다. 팀이 바뀌었을 수 있으므로 다른 샤드에 남은 행을 먼저 지운다. 샤드 간 트랜잭션은 없어서
+     * 중간에 실패하면 회원이 잠깐 빠질 수는 있어도 두 샤드에 중복으로 보이지는 않는다.
+     */
+    public void saveMember(Long memberId, String username, int age, Long teamId) {
+        int owner = shards.shardOf(teamId);
+        List<Integer> others = shards.all().stream().filter(index -> index != owner).toList();
+        replicate(() -> {
+            if (!others.isEmpty()) {
+                shards.execute(others, jdbc -> jdbc.update(DELETE_MEMBER, memberId));
+            }
+            shards.shard(owner).update(MERGE_MEMBER, memberId, username, age, teamId);
+        });
+    }
+
+    /**
+     * previousTeamId 가 다른 샤드에 있을 때만 그 샤드의 행을 지운다. 새 회원이면 previousTeamId 에 teamId 를 그대로 준다.
+     */
+    public void saveMember(Long memberId, String username, int age, Long teamId, Long previousTeamId) {
+        int owner = shards.shardOf(teamId);
+        int previous = shards.shardOf(previousTeamId);
+        replicate(() -> {
+            if (previous != owner) {
+                shards.shard(previous).update(DELETE_MEMBER, memberId);
+            }
+            shards.shard(owner).update(MERGE_MEMBER, memberId, username, age, teamId);
+        });
+    }
+
+    /**
+     * 새 회원 {member_id, username, age, team_id} 들을 샤드별로 모아서 배치로 넣는다.
+     */
+    public void saveMembers(List<Object[]> members) {
+        Map<Integer, List<Object[]>> byShard = members.stream()
+                .collect(Collectors.groupingBy(row -> shards.shardOf((Long) row[3])));
+        replicate(() -> byShard.forEach((index, rows) -> shards.shard(index).batchUpdate(MERGE_MEMBER, rows)));
+    }
+
+    /**
+     * {age, username, member_id} 중 null 이 아닌 값만 바꾼다. 호출하는 쪽은 팀(샤드)을 모르므로 모든 샤드에 보내고,
+     * 회원이 없는 샤드에서는 0건이 된다.
+     */
+    public void updateMembers(List<Object[]> updates) {
+        replicate(() -> shards.execute(shards.all(), jdbc -> jdbc.batchUpdate(UPDATE_MEMBER, updates)));
+    }
+
+    public void deleteMember(Long memberId) {
+        replicate(() -> shards.execute(shards.all(), jdbc -> jdbc.update(DELETE_MEMBER, memberId)));
+    }
+
+    public void deleteMember(Long memberId, Long teamId) {
+        replicate(() -> shards.shard(shards.shardOf(teamId)).update(DELETE_MEMBER, memberId));
+    }
+
+    /**
+     * 벌크 연산은 엔티티 이벤트가 없어서 어떤 행이 바뀌었는지 모르므로 커밋 뒤에 resync 를 예약한다.
+     */
+    @Override
+    public void beforeWrite(String table, String sql, boolean bulk) {
+        if (bulk) {
+            scheduleResync();
+        }
+    }
+
+    /**
+     * 기본 DB 의 team/member 로 샤드를 다시 채운다. 샤드마다 한 트랜잭션이라 조회는 이전 상태나 새 상태만 본다.
+     * 회원은 샤드마다 기본 DB 를 한 번씩 읽어서 자기 몫만 넣으므로 전체를 메모리에 올리지 않는다.
+     */
+    void resync() {
+        replication.writeLock().lock();
+        try {
+            List<Object[]> teams = source.query("select team_id, name from team",
+                    (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2)});
+            for (int index : shards.all()) {
+                shards.inTransaction(index, jdbc -> {
+                    jdbc.update("delete from member");
+                    jdbc.update("delete from team");
+                    jdbc.batchUpdate(MERGE_TEAM, teams);
+                    copyMembers(index, jdbc);
+                });
+            }
+            invalidateTeamRoutes();
+        } finally {
+            replication.writeLock().unlock();
+        }
+        dataVersion.changed();
+    }
+
+    /**
+     * 지금까지 예약된 resync 가 끝날 때까지 기다린다.
+     */
+    void awaitResync(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        resyncer.submit(() -> {
+        }).get(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        resyncer.shutdownNow();
+    }
+
+    private void copyMembers(int index, JdbcTemplate shard) {
+        List<Object[]> batch = new ArrayList<>(RESYNC_BATCH_SIZE);
+        source.query("select member_id, username, age, team_id from member", (RowCallbackHandler) rs -> {
+            Long teamId = rs.getObject(4, Long.class);
+            if (shards.shardOf(teamId) != index) {
+                return;
+            }
+            batch.add(new Object[]{rs.getLong(1), rs.getString(2), rs.getInt(3), teamId});
+            if (batch.size() == RESYNC_BATCH_SIZE) {
+                shard.batchUpdate(MERGE_MEMBER, batch);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            shard.batchUpdate(MERGE_MEMBER, batch);
+        }
+    }
+
+    private void replicate(Runnable write) {
+        replication.readLock().lock();
+        try {
+            write.run();
+        } finally {
+            replication.readLock().unlock();
+        }
+        dataVersion.changed();
+    }
+
+    /**
+     * 현재 트랜잭션이 있으면 커밋된 뒤에, 없으면 바로 예약한다. 이미 예약돼 있으면 그것으로 충분하다.
+     */
+    private void scheduleResync() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submitResync();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submitResync();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ShardedMemberRepository.this);
+            }
+        });
+    }
+
+    private void submitResync() {
+        if (!resyncQueued.compareAndSet(false, true)) {
+            return;
+        }
+        resyncer.execute(() -> {
+            // 시작하면서 내려야 이 resync 가 읽은 뒤에 커밋된 벌크 연산이 다음 resync 를 예약할 수 있다.
+            resyncQueued.set(false);
+            try {
+                resync();
+            } catch (RuntimeException e) {
+                log.error("member shard resync failed", e);
+            }
+        });
+    }
+
+    /**
+     * 팀 이름의 team_id 들로 그 팀이 있는 샤드만 고른다. 같은 이름의 팀이 여럿이면 여러 샤드가 나올 수 있고, 없는 팀이면 빈 목록이다.
+     */
+    List<Integer> shardsFor(MemberSearchCondition condition) {
+        if (!StringUtils.hasText(condition.getTeamName())) {
+            return shards.all();
+        }
+        return teamIds().getOrDefault(condition.getTeamName(), List.of())
+                .stream()
+                .map(shards::shardOf)
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * 팀은 모든 샤드에 복제되어 있으므로 0번 샤드의 team 전체를 한 번 읽어 이름별로 묶어 둔다.
+     * 읽는 사이에 팀이 바뀌었으면(generation 이 올라갔으면) 읽은 표는 이번 조회에만 쓰고 저장하지 않는다.
+     */
+    private Map<String, List<Long>> teamIds() {
+        TeamRoutes routes = teamRoutes.get();
+        if (routes.teamIds() != null) {
+            return routes.teamIds();
+        }
+
+        Map<String, List<Long>> teamIds = new HashMap<>();
+        shards.shard(0).query("select team_id, name from team", (RowCallbackHandler) rs ->
+                teamIds.computeIfAbsent(rs.getString(2), name -> new ArrayList<>()).add(rs.getLong(1)));
+        teamRoutes.compareAndSet(routes, new TeamRoutes(routes.generation(), teamIds));
+        return teamIds;
+    }
+
+    /**
+     * 샤드에 팀을 쓴 뒤에 부른다. 그 전에 읽기 시작한 조회는 compareAndSet 이 실패해서 예전 표를 저장하지 못한다.
+     */
+    private void invalidateTeamRoutes() {
+        teamRoutes.updateAndGet(routes -> new TeamRoutes(routes.generation() + 1, null));
+    }
+
+    /**
+     * 샤드별로 member_id 순으로 정렬된 목록을 member_id 순서를 유지하며 limit 건까지 합친다.
+     */
+    static List<MemberTeamDto> mergeByMemberId(List<List<MemberTeamDto>> sorted, int limit) {
+        return merge(sorted, MemberSort.DEFAULT.comparator(), limit);
+    }
+
+    /**
+     * 샤드별로 order 순으로 정렬된 목록을 그 순서를 유지하며 limit 건까지 합친다.
+     */
+    static List<MemberTeamDto> merge(List<List<MemberTeamDto>> sorted, Comparator<MemberTeamDto> order, int limit) {
+        // {샤드 번호, 그 샤드에서 다음에 꺼낼 위치}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(
+                Comparator.comparing((int[] head) -> sorted.get(head[0]).get(head[1]), order));
+        int total = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            total += sorted.get(i).size();
+            if (!sorted.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+
+        List<MemberTeamDto> merged = new ArrayList<>(Math.min(total, limit));
+        while (!heads.isEmpty() && merged.size() < limit) {
+            int[] head = heads.poll();
+            List<MemberTeamDto> rows = sorted.get(head[0]);
+            merged.add(rows.get(head[1]));
+            if (++head[1] < rows.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private String buildSearchSql(SearchKey key) {
+        return buildSearchSql(key, false);
+    }
+
+    private String buildSearchSql(SearchKey key, boolean after) {
+        SQLQuery<?> query = new SQLQuery<Void>(configuration)
+                .select(member.memberId, member.username, member.age, team.teamId, team.name)
+                .from(member)
+                .leftJoin(team).on(team.teamId.eq(member.teamId))
+                .where(MemberSqlSearchRepository.predicates(key.filter()));
+        if (after) {
+            query.where(member.memberId.gt(0L));
+        }
+        return query.orderBy(key.sort().sql()).getSQL().getSQL();
+    }
+
+    private String buildCountSql(Filter filter) {
+        SQLQuery<?> query = new SQLQuery<Void>(configuration)
+                .select(member.memberId.count())
+                .from(member);
+        if (filter.shape().teamName()) {
+            query.leftJoin(team).on(team.teamId.eq(member.teamId));
+        }
+        return query.where(MemberSqlSearchRepository.predicates(filter)).getSQL().getSQL();
+    }
+
+    private record SearchKey(Filter filter, MemberSort sort) {
+    }
+
+    private record TeamRoutes(long generation, Map<String, List<Long>> teamIds) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.Team;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.Optional;
+
+public interface TeamRepository extends JpaRepository<Team, Long> {
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Optional<Team> findByName(String name);
+
+    /**
+     * 팀과 소속 회원을 한 번에 읽는다. 컬렉션 fetch join 이라 페이징하는 메서드에는 쓰지 않는다.
+     */
+    @EntityGraph(Team.WITH_MEMBERS)
+    Optional<Team> findWithMembersByName(String name);
+}
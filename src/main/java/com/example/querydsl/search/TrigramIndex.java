@@ -0,0 +1,193 @@
+package com.example.querydsl.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 문자열의 3글자 조각(trigram) -> id 역색인. 동기화는 하지 않으므로 UsernameIndex 가 락을 잡고 쓴다.
+ * 값은 소문자로 정규화하고 앞에 시작 표시(START)를 붙여서 색인하므로 prefix 검색도 trigram 으로 좁힐 수 있다.
+ * trigram 교집합은 후보일 뿐이라(조각이 모두 있어도 이어져 있지 않을 수 있다) 원래 문자열로 한 번 더 확인한다.
+ */
+class TrigramIndex {
+
+    static final char START = '\u0002';
+
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final Map<Long, String> values = new HashMap<>();
+
+    void put(long id, String value) {
+        remove(id);
+        if (value == null) {
+            return;
+        }
+
+        String normalized = normalize(value);
+        values.put(id, normalized);
+        for (long gram : grams(START + normalized)) {
+            postings.computeIfAbsent(gram, key -> new PostingList()).add(id);
+        }
+    }
+
+    void remove(long id) {
+        String old = values.remove(id);
+        if (old == null) {
+            return;
+        }
+
+        for (long gram : grams(START + old)) {
+            PostingList list = postings.get(gram);
+            if (list != null && list.remove(id) && list.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * contains 를 포함하고 prefix 로 시작하는 값의 id 를 오름차순으로 돌려준다(둘 중 하나는 null 가능).
+     * 결과가 limit 건을 넘으면 null 을 돌려준다. id 목록이 그만큼 크면 IN 절보다 DB 스캔이 낫기 때문이다.
+     */
+    long[] find(String contains, String prefix, int limit) {
+        String fragment = contains == null ? null : normalize(contains);
+        String start = prefix == null ? null : START + normalize(prefix);
+
+        List<Long> grams = new ArrayList<>();
+        if (fragment != null) {
+            grams.addAll(grams(fragment));
+        }
+        if (start != null) {
+            grams.addAll(grams(start));
+        }
+
+        long[] result = new long[Math.max(1, Math.min(limit, 16))];
+        int size = 0;
+        if (grams.isEmpty()) {
+            // 3글자보다 짧은 조건은 trigram 이 없어서 메모리에 있는 값을 훑는다. 그래도 DB 전체 스캔보다는 싸다.
+            for (Map.Entry<Long, String> entry : values.entrySet()) {
+                if (matches(entry.getValue(), fragment, start)) {
+                    if (size == limit) {
+                        return null;
+                    }
+                    result = append(result, size++, entry.getKey());
+                }
+            }
+            long[] ids = Arrays.copyOf(result, size);
+            Arrays.sort(ids);
+            return ids;
+        }
+
+        List<PostingList> lists = new ArrayList<>(grams.size());
+        for (long gram : grams) {
+            PostingList list = postings.get(gram);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+        }
+        // 가장 짧은 목록을 기준으로 나머지에서 이진 탐색한다.
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        PostingList smallest = lists.get(0);
+        candidates:
+        for (int i = 0; i < smallest.size(); i++) {
+            long id = smallest.get(i);
+            for (int j = 1; j < lists.size(); j++) {
+                if (!lists.get(j).contains(id)) {
+                    continue candidates;
+                }
+            }
+            if (matches(values.get(id), fragment, start)) {
+                if (size == limit) {
+                    return null;
+                }
+                result = append(result, size++, id);
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean matches(String value, String fragment, String start) {
+        String marked = START + value;
+        return (fragment == null || value.contains(fragment)) && (start == null || marked.startsWith(start));
+    }
+
+    private static List<Long> grams(String value) {
+        List<Long> grams = new ArrayList<>(Math.max(0, value.length() - 2));
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            grams.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    private static long[] append(long[] array, int index, long value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    /**
+     * 오름차순으로 정렬된 id 배열. Set<Long> 대비 원소당 8바이트라 회원 수가 많아도 작게 유지된다.
+     */
+    static final class PostingList {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long get(int index) {
+            return ids[index];
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        void add(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            if (size > 16 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, ids.length / 2);
+            }
+            return true;
+        }
+    }
+}
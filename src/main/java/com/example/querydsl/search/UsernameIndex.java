@@ -0,0 +1,159 @@
+package com.example.querydsl.search;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static com.example.querydsl.entity.QMember.member;
+
+/**
+ * Member.username 의 in-process trigram 색인.
+ * 커밋된 Member 변경 이벤트(UsernameIndexEventListener)로 최신 상태를 유지하고,
+ * usernameContains/usernamePrefix 조건 앞에 member.id in (...) 을 붙여서 like '%..%' 전체 스캔을 피한다.
+ * SQL 엔진과 샤드 엔진은 find() 결과를 member_id = any(?) 로 붙인다(MemberSqlSearchRepository.bind).
+ * like 조건은 그대로 남기므로 색인이 늦더라도 조건에 맞지 않는 회원이 나오지는 않는다.
+ * 아직 만들어지지 않았거나 결과가 너무 많으면 like 조건만 쓴다.
+ * JPQL/Querydsl 벌크 연산은 이벤트가 없으므로 UsernameIndexLoader 가 커밋 뒤에 색인을 다시 만든다.
+ */
+@Component
+public class UsernameIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int maxIds;
+
+    private TrigramIndex index = new TrigramIndex();
+    private volatile boolean ready;
+    // rebuild 중에 들어온 변경. 스냅샷보다 새로운 값이므로 스냅샷을 다 넣은 뒤 다시 적용한다.
+    private List<Change> changesDuringRebuild;
+
+    public UsernameIndex(@Value("${querydsl.username-index.max-ids:1000}") int maxIds) {
+        this.maxIds = maxIds;
+    }
+
+    public void put(Long memberId, String username) {
+        apply(new Change(memberId, username));
+    }
+
+    public void remove(Long memberId) {
+        apply(new Change(memberId, null));
+    }
+
+    /**
+     * snapshot 으로 (id, username) 을 모두 받아 새 색인을 만들고 바꿔 끼운다. 그동안 검색은 기존 색인(또는 like)을 쓴다.
+     */
+    public void rebuild(Consumer<BiConsumer<Long, String>> snapshot) {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TrigramIndex rebuilt = new TrigramIndex();
+        try {
+            snapshot.accept(rebuilt::put);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(change -> change.applyTo(rebuilt));
+            changesDuringRebuild = null;
+            index = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 조건에 맞는 member id 를 오름차순으로 돌려준다. 색인이 준비되지 않았거나 maxIds 를 넘으면 null.
+     */
+    public long[] find(String contains, String prefix) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            return index.find(StringUtils.hasText(contains) ? contains : null,
+                    StringUtils.hasText(prefix) ? prefix : null, maxIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * usernameContains/usernamePrefix 를 Querydsl 조건으로 바꾼다. 색인이 있으면 id in (...) and like, 없으면 like 만.
+     * 둘 다 없으면 null 이라 where 에서 무시된다.
+     */
+    public BooleanExpression matching(String contains, String prefix) {
+        if (!StringUtils.hasText(contains) && !StringUtils.hasText(prefix)) {
+            return null;
+        }
+
+        BooleanExpression containsLike = StringUtils.hasText(contains) ? member.username.containsIgnoreCase(contains) : null;
+        BooleanExpression prefixLike = StringUtils.hasText(prefix) ? member.username.startsWithIgnoreCase(prefix) : null;
+        BooleanExpression like = containsLike == null ? prefixLike : containsLike.and(prefixLike);
+
+        long[] ids = find(contains, prefix);
+        if (ids == null) {
+            return like;
+        }
+        // 색인은 후보를 좁히기만 한다. 색인이 늦어서 들어온 후보도 like 로 다시 걸러진다.
+        return member.id.in(Arrays.stream(ids).boxed().toList()).and(like);
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            change.applyTo(index);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * username 이 null 이면 삭제.
+     */
+    private record Change(Long memberId, String username) {
+
+        void applyTo(TrigramIndex index) {
+            if (username == null) {
+                index.remove(memberId);
+            } else {
+                index.put(memberId, username);
+            }
+        }
+    }
+}
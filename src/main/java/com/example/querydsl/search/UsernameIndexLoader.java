@@ -0,0 +1,140 @@
+package com.example.querydsl.search;
+
+import com.example.querydsl.version.MemberTableWriteListener;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static com.example.querydsl.entity.QMember.member;
+
+/**
+ * 기동이 끝나면 member 의 (id, username) 을 커서로 읽어 UsernameIndex 를 만든다.
+ * 그 전까지 username 검색은 like 로 동작한다.
+ * <p>
+ * 엔티티 flush 는 UsernameIndexEventListener 가 한 건씩 반영하지만 JPQL/Querydsl/native 벌크 연산은 이벤트가 없다.
+ * 그래서 member 에 벌크 insert/update/merge 가 나가면 커밋 뒤에 색인을 백그라운드에서 다시 만든다.
+ * 다시 만드는 동안 들어온 요청은 여러 번이어도 한 번으로 합친다. 삭제는 like 조건이 걸러내므로 다시 만들지 않는다.
+ * Hibernate 를 거치지 않는 JDBC writer 는 직접 알린다. 바꾼 행을 아는 write-behind 와 대량 적재는 커밋 뒤에 UsernameIndex.put 으로,
+ * 어떤 행이 바뀌었는지 모르는 writer 는 invalidate() 로 다시 만들게 한다.
+ */
+@Slf4j
+@Component
+public class UsernameIndexLoader implements MemberTableWriteListener {
+
+    private final UsernameIndex usernameIndex;
+    private final JPAQueryFactory queryFactory;
+    private final PlatformTransactionManager transactionManager;
+
+    private final ExecutorService rebuilder;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    public UsernameIndexLoader(UsernameIndex usernameIndex,
+                               JPAQueryFactory queryFactory,
+                               PlatformTransactionManager transactionManager) {
+        this.usernameIndex = usernameIndex;
+        this.queryFactory = queryFactory;
+        this.transactionManager = transactionManager;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("username-index-rebuild-");
+        threadFactory.setDaemon(true);
+        this.rebuilder = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        usernameIndex.rebuild(sink -> readOnly.executeWithoutResult(status -> {
+            try (Stream<Tuple> rows = queryFactory
+                    .select(member.id, member.username)
+                    .from(member)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, 1_000)
+                    .stream()) {
+                rows.forEach(row -> sink.accept(row.get(member.id), row.get(member.username)));
+            }
+        }));
+        log.info("username index built: {} members in {} ms", usernameIndex.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void beforeWrite(String table, String sql, boolean bulk) {
+        if (bulk && "member".equals(table) && !sql.stripLeading().regionMatches(true, 0, "delete", 0, "delete".length())) {
+            invalidate();
+        }
+    }
+
+    /**
+     * 색인이 member 와 어긋났다고 알린다. 현재 트랜잭션이 있으면 커밋된 뒤에, 없으면 바로 다시 만들기를 예약한다.
+     * 이미 예약돼 있으면 그것으로 충분하다.
+     */
+    public void invalidate() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submitRebuild();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submitRebuild();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(UsernameIndexLoader.this);
+            }
+        });
+    }
+
+    /**
+     * 지금까지 예약된 다시 만들기가 끝날 때까지 기다린다.
+     */
+    void awaitRebuild(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        rebuilder.submit(() -> {
+        }).get(timeout, unit);
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebuilder.shutdownNow();
+    }
+
+    private void submitRebuild() {
+        if (!rebuildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        rebuilder.execute(() -> {
+            // 시작하면서 내려야 이 스냅샷 뒤에 커밋된 벌크 변경이 다음 다시 만들기를 예약할 수 있다.
+            rebuildQueued.set(false);
+            try {
+                load();
+            } catch (RuntimeException e) {
+                log.warn("username index rebuild failed", e);
+            }
+        });
+    }
+}
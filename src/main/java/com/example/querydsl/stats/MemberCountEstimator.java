@@ -0,0 +1,162 @@
+package com.example.querydsl.stats;
+
+import com.example.querydsl.config.CountEstimateProperties;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.repository.MemberSearchShape;
+import com.example.querydsl.search.UsernameIndex;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+import static com.example.querydsl.entity.QTeamStats.teamStats;
+
+/**
+ * MemberSearchCondition 의 결과 건수를 카운트 쿼리 없이 추정한다.
+ * 팀 조건만 있거나 조건이 없으면 증분으로 유지되는 team_stats 의 팀별 건수를 더하고(정확),
+ * 그 밖의 조건은 member.id 범위에 흩어진 구간들만 세어서 전체로 늘린다(95% 오차 범위 포함).
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberCountEstimator {
+
+    private final JPAQueryFactory queryFactory;
+    private final UsernameIndex usernameIndex;
+    private final CountEstimateProperties properties;
+
+    /**
+     * @param errorBound 95% 신뢰 수준의 ± 오차. exact 면 0.
+     */
+    public record Estimate(long total, long errorBound, boolean exact, String method) {
+    }
+
+    /**
+     * 추정할 수 없으면(샘플이 id 범위 전체와 비슷하면) empty. 그때는 정확히 세는 편이 낫다.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Estimate> estimate(MemberSearchCondition condition) {
+        MemberSearchShape shape = MemberSearchShape.of(condition);
+        boolean onlyTeamFilter = !shape.username() && !shape.usernameContains() && !shape.usernamePrefix()
+                && !shape.ageGoe() && !shape.ageLoe();
+        if (onlyTeamFilter) {
+            Optional<Estimate> fromStats = fromTeamStats(condition.getTeamName());
+            if (fromStats.isPresent()) {
+                return fromStats;
+            }
+        }
+        return sample(condition);
+    }
+
+    /**
+     * 대상 팀의 team_stats 가 모두 최신일 때만 쓴다. 조건이 없으면 팀이 없는 회원 수를 더한다.
+     */
+    private Optional<Estimate> fromTeamStats(String teamName) {
+        boolean byTeam = StringUtils.hasText(teamName);
+        List<Tuple> rows = queryFactory
+                .select(teamStats.memberCount, teamStats.stale)
+                .from(team)
+                .leftJoin(teamStats).on(teamStats.teamId.eq(team.id))
+                .where(byTeam ? team.name.eq(teamName) : null)
+                .fetch();
+
+        long total = 0;
+        for (Tuple row : rows) {
+            Boolean stale = row.get(teamStats.stale);
+            if (stale == null || stale) {
+                return Optional.empty();
+            }
+            total += row.get(teamStats.memberCount);
+        }
+
+        if (!byTeam) {
+            Long withoutTeam = queryFactory
+                    .select(member.count())
+                    .from(member)
+                    .where(member.team.isNull())
+                    .fetchOne();
+            total += withoutTeam == null ? 0 : withoutTeam;
+        }
+        return Optional.of(new Estimate(total, 0, true, "team-stats"));
+    }
+
+    /**
+     * id 범위를 windows 개의 층으로 나누고(나머지는 마지막 층) 층마다 임의 위치의 구간 하나씩, 합쳐서 sampleSize 개의 id 를 센다.
+     * id 하나를 "조건에 맞는 행이 있는가" 라는 시행으로 보고 비율을 전체 id 범위로 늘린다. 빈 id(삭제, 시퀀스 건너뜀)도 함께 반영된다.
+     */
+    private Optional<Estimate> sample(MemberSearchCondition condition) {
+        Tuple bounds = queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .fetchOne();
+        Long minId = bounds == null ? null : bounds.get(0, Long.class);
+        Long maxId = bounds == null ? null : bounds.get(1, Long.class);
+        if (minId == null) {
+            return Optional.of(new Estimate(0, 0, true, "empty"));
+        }
+
+        long span = maxId - minId + 1;
+        int windows = properties.getWindows();
+        long width = properties.getSampleSize() / windows;
+        long stride = span / windows;
+        if (width < 1 || width >= stride) {
+            return Optional.empty();
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BooleanBuilder inWindows = new BooleanBuilder();
+        for (int i = 0; i < windows; i++) {
+            // 마지막 층은 windows 로 나누어 떨어지지 않고 남은 id 까지 맡는다. 그래야 전체 span 으로 늘리는 게 맞다.
+            long size = i == windows - 1 ? span - i * stride : stride;
+            long start = minId + i * stride + random.nextLong(size - width + 1);
+            inWindows.or(member.id.between(start, start + width - 1));
+        }
+
+        JPAQuery<Long> query = queryFactory
+                .select(member.count())
+                .from(member);
+        if (StringUtils.hasText(condition.getTeamName())) {
+            query.leftJoin(member.team, team);
+        }
+        Long matched = query
+                .where(StringUtils.hasText(condition.getUsername()) ? member.username.eq(condition.getUsername()) : null,
+                        usernameIndex.matching(condition.getUsernameContains(), condition.getUsernamePrefix()),
+                        StringUtils.hasText(condition.getTeamName()) ? team.name.eq(condition.getTeamName()) : null,
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        inWindows)
+                .fetchOne();
+
+        long sampled = width * windows;
+        long hits = matched == null ? 0 : matched;
+        double p = (double) hits / sampled;
+        long total = Math.round(p * span);
+        long errorBound;
+        if (hits == 0) {
+            // 한 건도 없으면 정규 근사가 0 을 주므로 rule of three(95% 상한 3/n)를 쓴다.
+            errorBound = (long) Math.ceil(3.0 / sampled * span);
+        } else {
+            double finitePopulation = (double) (span - sampled) / (span - 1);
+            errorBound = (long) Math.ceil(1.96 * Math.sqrt(p * (1 - p) / sampled * finitePopulation) * span);
+        }
+        return Optional.of(new Estimate(total, errorBound, false, "id-sample"));
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.querydsl.stats;
+
+import com.example.querydsl.config.CountEstimateProperties;
+import com.example.querydsl.config.MemberSearchProperties;
+import com.example.querydsl.dto.CountMode;
+import com.example.querydsl.dto.EstimatedPage;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.MemberRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * CountMode 에 따라 /v2/members 페이지의 전체 건수를 정확히 세거나 추정한다.
+ */
+@Service
+@RequiredArgsConstructor
+public class MemberPageService {
+
+    private final MemberRepository memberRepository;
+    private final MemberCountEstimator memberCountEstimator;
+    private final CountEstimateProperties countProperties;
+    private final MemberSearchProperties searchProperties;
+
+    public Page<MemberTeamDto> searchPaging(MemberSearchCondition condition, Pageable pageable, CountMode countMode) {
+        if (countMode != CountMode.APPROXIMATE) {
+            return memberRepository.searchPaging(condition, pageable);
+        }
+
+        List<MemberTeamDto> content = memberRepository.searchContent(condition, pageable);
+
+        // 마지막 페이지라면 세지 않아도 전체 건수를 안다. PageableExecutionUtils 와 같은 판단이다.
+        boolean lastPage = content.size() < pageable.getPageSize() && (pageable.getOffset() == 0 || !content.isEmpty());
+        if (lastPage) {
+            return new EstimatedPage<>(content, pageable, pageable.getOffset() + content.size(), true, 0, "page");
+        }
+
+        // 샤드 데이터는 기본 DB 의 team_stats/member 로 추정할 수 없다.
+        Optional<MemberCountEstimator.Estimate> estimate = searchProperties.getEngine() == MemberSearchProperties.Engine.SHARDED
+                ? Optional.empty()
+                : memberCountEstimator.estimate(condition);
+        if (estimate.isPresent() && (estimate.get().exact() || estimate.get().total() >= countProperties.getExactThreshold())) {
+            MemberCountEstimator.Estimate e = estimate.get();
+            return new EstimatedPage<>(content, pageable, e.total(), e.exact(), e.errorBound(), e.method());
+        }
+
+        return new EstimatedPage<>(content, pageable, memberRepository.searchCount(condition), true, 0, "count");
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.querydsl.stats;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 한 트랜잭션 동안 발생한 팀 집계 변화량. flush 가 모두 끝난 뒤 커밋 직전에 팀당 UPDATE 한 번으로 반영한다.
+ */
+class TeamStatsDelta implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+    private static final String INSERT_SQL =
+            "insert into team_stats (team_id, member_count, age_sum, age_min, age_max, stale)"
+                    + " select ?, 0, 0, null, null, ? where not exists (select 1 from team_stats where team_id = ?)";
+    private static final String DUPLICATE_KEY = "23505";
+    private static final String DELETE_SQL = "delete from team_stats where team_id = ?";
+
+    private final Runnable onComplete;
+    private final Set<Long> insertedTeams = new LinkedHashSet<>();
+    private final Set<Long> deletedTeams = new LinkedHashSet<>();
+    private final Map<Long, Change> changes = new LinkedHashMap<>();
+
+    TeamStatsDelta(Runnable onComplete) {
+        this.onComplete = onComplete;
+    }
+
+    void teamInserted(Long teamId) {
+        insertedTeams.add(teamId);
+    }
+
+    void teamDeleted(Long teamId) {
+        deletedTeams.add(teamId);
+    }
+
+    void memberAdded(Long teamId, int age) {
+        if (teamId != null) {
+            changes.computeIfAbsent(teamId, id -> new Change()).add(age);
+        }
+    }
+
+    void memberRemoved(Long teamId, int age) {
+        if (teamId != null) {
+            changes.computeIfAbsent(teamId, id -> new Change()).remove(age);
+        }
+    }
+
+    void markStale(Long teamId) {
+        if (teamId != null) {
+            changes.computeIfAbsent(teamId, id -> new Change()).stale = true;
+        }
+    }
+
+    @Override
+    public void doBeforeTransactionCompletion(SessionImplementor session) {
+        session.doWork(this::apply);
+    }
+
+    @Override
+    public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+        onComplete.run();
+    }
+
+    private void apply(Connection connection) throws SQLException {
+        for (Long teamId : insertedTeams) {
+            insertIfMissing(connection, teamId, false);
+        }
+
+        for (Map.Entry<Long, Change> entry : changes.entrySet()) {
+            if (deletedTeams.contains(entry.getKey())) {
+                continue;
+            }
+            if (update(connection, entry.getKey(), entry.getValue()) == 0
+                    // 집계 기능 도입 전부터 있던 팀이면 행이 없다. 조회 시 전체 재계산되도록 stale 로 만든다.
+                    && !insertIfMissing(connection, entry.getKey(), true)) {
+                // 그 사이 다른 트랜잭션이 행을 넣고 커밋했으므로 그 행에 변화량을 더한다.
+                update(connection, entry.getKey(), entry.getValue());
+            }
+        }
+
+        for (Long teamId : deletedTeams) {
+            try (PreparedStatement statement = connection.prepareStatement(DELETE_SQL)) {
+                statement.setLong(1, teamId);
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private int update(Connection connection, Long teamId, Change change) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(change.toSql())) {
+            change.bind(statement, teamId);
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * 행이 없을 때만 넣는다. "update 가 0건이면 insert" 는 원자적이지 않아서, 같은 팀의 첫 회원을 동시에 넣는 두 트랜잭션이
+     * 둘 다 insert 하면 늦은 쪽이 PK 중복(SQLState 23505)으로 실패한다. 그 행은 이미 있으므로 실패로 보지 않고 false 를 돌려준다.
+     * 실패한 문장이 트랜잭션을 깨뜨리는 DB 도 있으므로 savepoint 까지만 되돌리고 사용자 트랜잭션은 이어간다.
+     * 그 밖의 오류는 그대로 던진다.
+     *
+     * @return 이 호출이 행을 넣었으면 true
+     */
+    static boolean insertIfMissing(Connection connection, Long teamId, boolean stale) throws SQLException {
+        // auto-commit 이면 되돌릴 트랜잭션이 없으므로 savepoint 도 필요 없다.
+        Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+        boolean inserted;
+        try {
+            inserted = insert(connection, teamId, stale);
+        } catch (SQLException e) {
+            if (savepoint != null) {
+                connection.rollback(savepoint);
+            }
+            if (DUPLICATE_KEY.equals(e.getSQLState())) {
+                return false;
+            }
+            throw e;
+        }
+        if (savepoint != null) {
+            connection.releaseSavepoint(savepoint);
+        }
+        return inserted;
+    }
+
+    private static boolean insert(Connection connection, Long teamId, boolean stale) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            statement.setLong(1, teamId);
+            statement.setBoolean(2, stale);
+            statement.setLong(3, teamId);
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    private static class Change {
+        long count;
+        long sum;
+        Integer addedMin;
+        Integer addedMax;
+        Integer removedMin;
+        Integer removedMax;
+        boolean stale;
+
+        void add(int age) {
+            count++;
+            sum += age;
+            addedMin = addedMin == null ? age : Math.min(addedMin, age);
+            addedMax = addedMax == null ? age : Math.max(addedMax, age);
+        }
+
+        void remove(int age) {
+            count--;
+            sum -= age;
+            removedMin = removedMin == null ? age : Math.min(removedMin, age);
+            removedMax = removedMax == null ? age : Math.max(removedMax, age);
+        }
+
+        /**
+         * SET 절의 우변은 모두 갱신 전 값을 참조한다.
+         * 현재 min/max 와 같은 값이 빠져나가면 새 min/max 를 알 수 없으므로 stale 로 표시한다.
+         */
+        String toSql() {
+            StringBuilder sql = new StringBuilder("update team_stats set member_count = member_count + ?, age_sum = age_sum + ?");
+            if (addedMin != null) {
+                sql.append(", age_min = case when age_min is null or age_min > ? then ? else age_min end");
+                sql.append(", age_max = case when age_max is null or age_max < ? then ? else age_max end");
+            }
+            if (stale) {
+                sql.append(", stale = true");
+            } else if (removedMin != null) {
+                sql.append(", stale = case when age_min is null or ? <= age_min or ? >= age_max then true else stale end");
+            }
+            return sql.append(" where team_id = ?").toString();
+        }
+
+        void bind(PreparedStatement statement, Long teamId) throws SQLException {
+            int index = 1;
+            statement.setLong(index++, count);
+            statement.setLong(index++, sum);
+            if (addedMin != null) {
+                statement.setInt(index++, addedMin);
+                statement.setInt(index++, addedMin);
+                statement.setInt(index++, addedMax);
+                statement.setInt(index++, addedMax);
+            }
+            if (!stale && removedMin != null) {
+                statement.setInt(index++, removedMin);
+                statement.setInt(index++, removedMax);
+            }
+            statement.setLong(index, teamId);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.querydsl.stats;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Member/Team 의 insert/update/delete 를 받아서 세션(트랜잭션)별 TeamStatsDelta 에 모아둔다.
+ * JPQL/Querydsl 벌크 연산은 이벤트가 발생하지 않으므로 TeamStatsService.invalidate 를 호출해야 한다.
+ */
+class TeamStatsEventListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final Map<EventSource, TeamStatsDelta> deltas = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Team team) {
+            deltaOf(event.getSession()).teamInserted(team.getId());
+        } else if (event.getEntity() instanceof Member) {
+            String[] names = event.getPersister().getPropertyNames();
+            deltaOf(event.getSession()).memberAdded(teamId(names, event.getState()), age(names, event.getState()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+
+        String[] names = event.getPersister().getPropertyNames();
+        TeamStatsDelta delta = deltaOf(event.getSession());
+        Long newTeamId = teamId(names, event.getState());
+
+        if (event.getOldState() == null) {
+            delta.markStale(newTeamId);
+            return;
+        }
+
+        Long oldTeamId = teamId(names, event.getOldState());
+        int oldAge = age(names, event.getOldState());
+        int newAge = age(names, event.getState());
+        if (Objects.equals(oldTeamId, newTeamId) && oldAge == newAge) {
+            return;
+        }
+
+        delta.memberRemoved(oldTeamId, oldAge);
+        delta.memberAdded(newTeamId, newAge);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Team team) {
+            deltaOf(event.getSession()).teamDeleted(team.getId());
+        } else if (event.getEntity() instanceof Member) {
+            String[] names = event.getPersister().getPropertyNames();
+            deltaOf(event.getSession()).memberRemoved(teamId(names, event.getDeletedState()), age(names, event.getDeletedState()));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private TeamStatsDelta deltaOf(EventSource session) {
+        return deltas.computeIfAbsent(session, s -> {
+            TeamStatsDelta delta = new TeamStatsDelta(() -> deltas.remove(s));
+            s.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) delta);
+            s.getActionQueue().registerProcess((AfterTransactionCompletionProcess) delta);
+            return delta;
+        });
+    }
+
+    private static Long teamId(String[] names, Object[] state) {
+        Object team = state[indexOf(names, "team")];
+        return team != null ? ((Team) team).getId() : null;
+    }
+
+    private static int age(String[] names, Object[] state) {
+        return (Integer) state[indexOf(names, "age")];
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Member has no property " + name);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.querydsl.stats;
+
+import com.example.querydsl.dto.QTeamStatsDto;
+import com.example.querydsl.dto.TeamStatsDto;
+import com.example.querydsl.entity.TeamStats;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+import static com.example.querydsl.entity.QTeamStats.teamStats;
+
+/**
+ * 팀별 집계를 member 전체 groupBy 대신 team_stats 에서 O(팀 수)로 읽는다.
+ * stale 로 표시된 팀만 그 팀의 멤버로 다시 계산한다.
+ */
+@Service
+@RequiredArgsConstructor
+public class TeamStatsService {
+
+    @PersistenceContext
+    EntityManager em;
+    private final JPAQueryFactory queryFactory;
+
+    @Transactional
+    public List<TeamStatsDto> findAll() {
+        createMissingRows();
+        recomputeStale();
+
+        return queryFactory
+                .select(new QTeamStatsDto(
+                        team.id,
+                        team.name,
+                        teamStats.memberCount,
+                        teamStats.ageSum,
+                        teamStats.ageMin,
+                        teamStats.ageMax))
+                .from(teamStats)
+                .join(team).on(team.id.eq(teamStats.teamId))
+                .orderBy(team.name.asc(), team.id.asc())
+                .fetch();
+    }
+
+    /**
+     * 이벤트를 거치지 않는 벌크 연산 이후에 호출해서 전체 팀을 다음 조회 때 다시 계산하게 한다.
+     */
+    @Transactional
+    public void invalidateAll() {
+        queryFactory
+                .update(teamStats)
+                .set(teamStats.stale, true)
+                .execute();
+    }
+
+    private void createMissingRows() {
+        List<Long> missing = queryFactory
+                .select(team.id)
+                .from(team)
+                .where(team.id.notIn(JPAExpressions.select(teamStats.teamId).from(teamStats)))
+                .fetch();
+
+        if (missing.isEmpty()) {
+            return;
+        }
+        // 동시에 조회한 다른 요청이나 첫 회원을 넣는 트랜잭션이 같은 행을 먼저 넣을 수 있으므로 영속화 대신 중복을 무시하는 insert 를 쓴다.
+        em.unwrap(Session.class).doWork(connection -> {
+            for (Long teamId : missing) {
+                TeamStatsDelta.insertIfMissing(connection, teamId, true);
+            }
+        });
+    }
+
+    private void recomputeStale() {
+        List<Long> staleTeamIds = queryFactory
+                .select(teamStats.teamId)
+                .from(teamStats)
+                .where(teamStats.stale.isTrue())
+                .fetch();
+
+        for (Long teamId : staleTeamIds) {
+            // 행 락을 먼저 잡아서, 집계 도중 커밋되는 다른 트랜잭션의 증분이 덮어써지지 않게 한다.
+            TeamStats stats = em.find(TeamStats.class, teamId, LockModeType.PESSIMISTIC_WRITE);
+            if (stats == null) {
+                continue;
+            }
+
+            Tuple aggregate = queryFactory
+                    .select(member.count(), member.age.sum(), member.age.min(), member.age.max())
+                    .from(member)
+                    .where(member.team.id.eq(teamId))
+                    .fetchOne();
+
+            // sum 의 결과 타입은 DB/Hibernate 버전에 따라 Integer/Long 이 섞여서 Number 로 받는다.
+            Number count = aggregate.get(0, Number.class);
+            Number sum = aggregate.get(1, Number.class);
+            stats.recompute(
+                    count != null ? count.longValue() : 0,
+                    sum != null ? sum.longValue() : 0,
+                    aggregate.get(member.age.min()),
+                    aggregate.get(member.age.max()));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.querydsl.stream;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.MemberJpaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 검색 결과를 text/event-stream 으로 흘려보낸다.
+ * 커서에서 batchSize 건이 모일 때마다 "members" 이벤트 하나로 쓰고 flush 하므로 전체 결과를 다 읽기 전에 첫 행이 나간다.
+ * 소켓 버퍼가 차면 write 가 막혀서 클라이언트가 읽는 속도 이상으로 커서를 진행하지 않고(백프레셔),
+ * 클라이언트가 끊어서 write 가 실패하면 바로 커서를 닫고 트랜잭션을 끝내 커넥션을 반납한다.
+ * 이벤트 id 는 배치의 마지막 member_id 라서 재연결 시 Last-Event-ID 로 이어 받을 수 있다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberEventStreamer {
+
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @return 클라이언트에게 보낸 행 수
+     */
+    public long stream(MemberSearchCondition condition, Long lastEventId, int batchSize, OutputStream out) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        long[] sent = {0};
+        try {
+            readOnly.executeWithoutResult(status -> {
+                try (Stream<MemberTeamDto> rows = memberJpaRepository.stream(condition, lastEventId, batchSize)) {
+                    Iterator<MemberTeamDto> cursor = rows.iterator();
+                    List<MemberTeamDto> batch = new ArrayList<>(batchSize);
+                    while (cursor.hasNext()) {
+                        batch.add(cursor.next());
+                        if (batch.size() == batchSize) {
+                            sent[0] += send(out, batch);
+                        }
+                    }
+                    sent[0] += send(out, batch);
+                    writeEvent(out, null, "end", Map.of("count", sent[0]));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // 클라이언트가 연결을 끊었다. 커서와 트랜잭션은 이미 정리됐다.
+            log.debug("member event stream closed by client after {} rows: {}", sent[0], e.getCause().getMessage());
+        }
+        return sent[0];
+    }
+
+    private int send(OutputStream out, List<MemberTeamDto> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int size = batch.size();
+        writeEvent(out, batch.get(size - 1).getMemberId(), "members", batch);
+        batch.clear();
+        return size;
+    }
+
+    private void writeEvent(OutputStream out, Long id, String event, Object data) throws IOException {
+        StringBuilder frame = new StringBuilder();
+        if (id != null) {
+            frame.append("id: ").append(id).append('\n');
+        }
+        frame.append("event: ").append(event).append('\n')
+                .append("data: ").append(objectMapper.writeValueAsString(data)).append("\n\n");
+        out.write(frame.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
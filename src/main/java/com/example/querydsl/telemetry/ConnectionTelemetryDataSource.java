@@ -0,0 +1,138 @@
+package com.example.querydsl.telemetry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션을 얻는 데 걸린 시간(member.db.connection.wait)과 close 될 때까지 잡고 있던 시간(member.db.connection.hold)을
+ * 요청의 URL 패턴(endpoint 태그)별로 잰다. 요청 밖(스케줄러, 비동기 스트리밍 등)은 background 로 묶는다.
+ * <p>
+ * open-in-view 가 켜져 있으면 트랜잭션 밖의 조회가 얻은 커넥션은 응답을 다 쓸 때까지 반납되지 않는다.
+ * 그래서 hold 에는 open-in-view 태그를 붙여서 직렬화/네트워크 시간까지 커넥션을 잡고 있는 엔드포인트가 드러나게 한다.
+ * 풀 전체의 active/idle/pending 과 대기 시간 분포는 Hikari 가 hikaricp.* 로 내보낸다.
+ */
+public class ConnectionTelemetryDataSource extends DelegatingDataSource {
+
+    static final String BACKGROUND = "background";
+    static final String UNMATCHED = "unmatched";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final String openInView;
+
+    public ConnectionTelemetryDataSource(DataSource target, ObjectProvider<MeterRegistry> meterRegistry, boolean openInView) {
+        super(target);
+        this.meterRegistry = meterRegistry;
+        this.openInView = String.valueOf(openInView);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        return track(obtainTargetDataSource().getConnection(), start);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        return track(obtainTargetDataSource().getConnection(username, password), start);
+    }
+
+    private Connection track(Connection connection, long requested) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return connection;
+        }
+
+        String endpoint = currentEndpoint();
+        long acquired = System.nanoTime();
+        Timer.builder("member.db.connection.wait")
+                .tag("endpoint", endpoint)
+                .register(registry)
+                .record(acquired - requested, TimeUnit.NANOSECONDS);
+        Timer hold = Timer.builder("member.db.connection.hold")
+                .tag("endpoint", endpoint)
+                .tag("open-in-view", openInView)
+                .register(registry);
+
+        return (Connection) Proxy.newProxyInstance(ConnectionTelemetryDataSource.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new HoldTimer(connection, hold, acquired));
+    }
+
+    private static String currentEndpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return BACKGROUND;
+        }
+        HttpServletRequest request = servletAttributes.getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : UNMATCHED;
+    }
+
+    /**
+     * close 는 여러 번 불릴 수 있으므로 처음 한 번만 기록한다.
+     */
+    private static final class HoldTimer implements InvocationHandler {
+
+        private final Connection target;
+        private final Timer hold;
+        private final long acquired;
+        private boolean closed;
+
+        private HoldTimer(Connection target, Timer hold, long acquired) {
+            this.target = target;
+            this.hold = hold;
+            this.acquired = acquired;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        hold.record(System.nanoTime() - acquired, TimeUnit.NANOSECONDS);
+                    }
+                }
+                case "unwrap" -> {
+                    if (((Class<?>) args[0]).isInstance(target)) {
+                        return target;
+                    }
+                }
+                case "isWrapperFor" -> {
+                    if (((Class<?>) args[0]).isInstance(target)) {
+                        return true;
+                    }
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                }
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
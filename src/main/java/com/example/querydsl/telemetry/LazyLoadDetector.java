@@ -0,0 +1,105 @@
+package com.example.querydsl.telemetry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 한 세션 안에서 같은 lazy 연관관계가 하나씩 따로 로딩되는 횟수를 세다가 threshold 에 닿으면 경고한다.
+ * 루프를 돌며 member.getTeam().getName(), team.getMembers() 를 건드리는 전형적인 N+1 이다.
+ * <ul>
+ *     <li>엔티티 프록시 초기화(IMMEDIATE_LOAD): 이미 영속성 컨텍스트에 있으면(@BatchSize 로 같이 읽혔으면) 세지 않는다.</li>
+ *     <li>컬렉션 초기화: 배치로 같이 초기화된 컬렉션은 이벤트가 오지 않으므로 따로 로딩된 것만 센다.</li>
+ * </ul>
+ * 경고는 세션/연관관계마다 한 번이고, 호출한 애플리케이션 코드 위치를 같이 남긴다. hibernate.lazy.n-plus-one{role} 으로도 센다.
+ */
+@Slf4j
+public class LazyLoadDetector implements LoadEventListener, InitializeCollectionEventListener {
+
+    private static final String APPLICATION_PACKAGE = "com.example.querydsl.";
+
+    private final ThreadLocal<SessionCounts> counts = new ThreadLocal<>();
+    private final int threshold;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public LazyLoadDetector(int threshold, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.threshold = threshold;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) {
+        if (loadType != LoadEventListener.IMMEDIATE_LOAD || event.getEntityId() == null) {
+            return;
+        }
+        EventSource session = event.getSession();
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(event.getEntityClassName());
+        EntityKey key = session.generateEntityKey(event.getEntityId(), persister);
+        if (session.getPersistenceContextInternal().getEntity(key) != null) {
+            return;
+        }
+        count(session, persister.getEntityName());
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) {
+        count(event.getSession(), event.getCollection().getRole());
+    }
+
+    private void count(EventSource session, String role) {
+        SessionCounts current = counts.get();
+        if (current == null || current.session.get() != session) {
+            current = new SessionCounts(session);
+            counts.set(current);
+        }
+        int loads = current.loads.merge(role, 1, Integer::sum);
+        if (loads != threshold) {
+            return;
+        }
+
+        log.warn("possible N+1: {} lazily loaded {} times in one session, last from {}. "
+                        + "Use a fetch plan (entity graph) or fetch join for this use case",
+                role, loads, caller().orElse("unknown"));
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            registry.counter("hibernate.lazy.n-plus-one", "role", role).increment();
+        }
+    }
+
+    /**
+     * 엔티티 getter 와 이 클래스를 건너뛴 첫 애플리케이션 프레임.
+     */
+    private static Optional<String> caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE))
+                .filter(frame -> !frame.getClassName().startsWith(APPLICATION_PACKAGE + "telemetry.")
+                        && !frame.getClassName().startsWith(APPLICATION_PACKAGE + "entity."))
+                .map(frame -> frame.getClassName() + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+                .findFirst());
+    }
+
+    /**
+     * 세션은 스레드에 묶여 쓰이므로 스레드마다 마지막 세션의 횟수만 들고 있는다. 세션이 바뀌면 새로 센다.
+     */
+    private static final class SessionCounts {
+
+        private final WeakReference<EventSource> session;
+        private final Map<String, Integer> loads = new HashMap<>();
+
+        private SessionCounts(EventSource session) {
+            this.session = new WeakReference<>(session);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.querydsl.telemetry;
+
+import com.example.querydsl.config.LazyLoadDetectionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * SessionFactory 가 만들어질 때 LazyLoadDetector 를 기본 리스너보다 앞에 등록한다.
+ * 앞에 있어야 프록시 초기화 때 대상이 이미 영속성 컨텍스트에 있었는지(배치로 같이 읽혔는지) 볼 수 있다.
+ */
+@Component
+public class LazyLoadIntegrator implements Integrator {
+
+    private final LazyLoadDetectionProperties properties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public LazyLoadIntegrator(LazyLoadDetectionProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LazyLoadDetector detector = new LazyLoadDetector(properties.getThreshold(), meterRegistry);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+
+        registry.prependListeners(EventType.LOAD, detector);
+        registry.prependListeners(EventType.INIT_COLLECTION, detector);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.querydsl.telemetry;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.repository.MemberSearchShape;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * 리포지토리 public 메서드 호출이 그 스레드에서 할당한 바이트와 쓴 CPU 시간을 ResourceAccounting 에 남긴다.
+ * 리포지토리끼리 부르는 경우(MemberRepositoryImpl -> MemberSqlSearchRepository 등) 두 번 세지 않도록 가장 바깥 호출만 남긴다.
+ * 스트림/커서를 돌려주는 메서드는 돌려줄 때까지만 센다.
+ */
+@Aspect
+public class RepositoryResourceAspect {
+
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final ResourceAccounting accounting;
+
+    public RepositoryResourceAspect(ResourceAccounting accounting) {
+        this.accounting = accounting;
+    }
+
+    @Around("within(com.example.querydsl.repository.*Repository*) && execution(public * *(..))")
+    public Object account(ProceedingJoinPoint joinPoint) throws Throwable {
+        int[] depth = DEPTH.get();
+        if (depth[0]++ > 0) {
+            try {
+                return joinPoint.proceed();
+            } finally {
+                depth[0]--;
+            }
+        }
+
+        long allocated = ThreadResources.allocatedBytes();
+        long cpu = ThreadResources.cpuNanos();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            depth[0]--;
+            if (allocated >= 0 && cpu >= 0) {
+                String name = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+                accounting.record(ResourceAccounting.REPOSITORY, name, shape(joinPoint.getArgs()),
+                        ThreadResources.allocatedBytes() - allocated, ThreadResources.cpuNanos() - cpu);
+            }
+        }
+    }
+
+    private static String shape(Object[] args) {
+        if (args.length > 0 && args[0] instanceof MemberSearchCondition condition) {
+            return MemberSearchShape.of(condition).toString();
+        }
+        return "-";
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.querydsl.telemetry;
+
+import com.example.querydsl.config.ResourceAccountingProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 요청/리포지토리 호출이 그 스레드에서 할당한 바이트와 쓴 CPU 시간을 (종류, 이름, 검색 조건 모양)별로 모은다.
+ * 이름은 요청이면 URL 패턴, 리포지토리면 클래스.메서드다. 모양은 MemberSearchShape 라 가짓수가 정해져 있다.
+ * <p>
+ * 누적값이라 상위 목록은 애플리케이션이 뜬 뒤 전체 기준이다. 주기적으로 할당량 상위 항목을 로그로 남기고,
+ * 요청 하나가 requestAllocationWarning 을 넘으면 바로 경고한다.
+ */
+@Slf4j
+public class ResourceAccounting {
+
+    public static final String REQUEST = "request";
+    public static final String REPOSITORY = "repository";
+
+    private final ResourceAccountingProperties properties;
+    private final Map<Key, Totals> totals = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public ResourceAccounting(ResourceAccountingProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = properties.getLogInterval().toMillis();
+        if (interval <= 0) {
+            return;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("resource-accounting-");
+        threadFactory.setDaemon(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        scheduler.scheduleWithFixedDelay(this::logTop, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 음수는 JVM 이 측정을 지원하지 않는다는 뜻이라 버린다.
+     */
+    public void record(String kind, String name, String shape, long allocatedBytes, long cpuNanos) {
+        if (allocatedBytes < 0 || cpuNanos < 0) {
+            return;
+        }
+        totals.computeIfAbsent(new Key(kind, name, shape), key -> new Totals()).add(allocatedBytes, cpuNanos);
+
+        if (REQUEST.equals(kind) && allocatedBytes > properties.getRequestAllocationWarning().toBytes()) {
+            log.warn("{} [{}] allocated {} bytes in one request (cpu {} ms)", name, shape, allocatedBytes, cpuNanos / 1_000_000);
+        }
+    }
+
+    /**
+     * kind 가 null 이면 모든 종류에서 고른다.
+     */
+    public List<Usage> top(String kind, Order order, int limit) {
+        return totals.entrySet().stream()
+                .filter(entry -> kind == null || entry.getKey().kind().equals(kind))
+                .map(entry -> entry.getValue().usage(entry.getKey()))
+                .sorted(order.comparator)
+                .limit(limit)
+                .toList();
+    }
+
+    public void reset() {
+        totals.clear();
+    }
+
+    private void logTop() {
+        for (String kind : new String[]{REQUEST, REPOSITORY}) {
+            List<Usage> top = top(kind, Order.ALLOCATED, properties.getTop());
+            if (top.isEmpty()) {
+                continue;
+            }
+            StringBuilder sb = new StringBuilder("top ").append(kind).append(" allocations since start:");
+            for (Usage usage : top) {
+                sb.append(String.format("%n  %-50s %-40s calls %8d, alloc %,14d B (avg %,12d B, max %,12d B), cpu %,10d ms",
+                        usage.name(), usage.shape(), usage.calls(), usage.allocatedBytes(), usage.avgAllocatedBytes(),
+                        usage.maxAllocatedBytes(), usage.cpuNanos() / 1_000_000));
+            }
+            log.info(sb.toString());
+        }
+    }
+
+    public enum Order {
+        ALLOCATED(Comparator.comparingLong(Usage::allocatedBytes).reversed()),
+        CPU(Comparator.comparingLong(Usage::cpuNanos).reversed()),
+        AVG_ALLOCATED(Comparator.comparingLong(Usage::avgAllocatedBytes).reversed());
+
+        private final Comparator<Usage> comparator;
+
+        Order(Comparator<Usage> comparator) {
+            this.comparator = comparator;
+        }
+    }
+
+    public record Usage(String kind, String name, String shape, long calls,
+                        long allocatedBytes, long avgAllocatedBytes, long maxAllocatedBytes,
+                        long cpuNanos, long avgCpuNanos) {
+    }
+
+    private record Key(String kind, String name, String shape) {
+    }
+
+    private static final class Totals {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder allocated = new LongAdder();
+        private final LongAdder cpu = new LongAdder();
+        private final LongAccumulator maxAllocated = new LongAccumulator(Math::max, 0);
+
+        void add(long allocatedBytes, long cpuNanos) {
+            calls.increment();
+            allocated.add(allocatedBytes);
+            cpu.add(cpuNanos);
+            maxAllocated.accumulate(allocatedBytes);
+        }
+
+        Usage usage(Key key) {
+            long n = calls.sum();
+            long allocatedBytes = allocated.sum();
+            long cpuNanos = cpu.sum();
+            return new Usage(key.kind(), key.name(), key.shape(), n,
+                    allocatedBytes, n == 0 ? 0 : allocatedBytes / n, maxAllocated.get(),
+                    cpuNanos, n == 0 ? 0 : cpuNanos / n);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.querydsl.telemetry;
+
+import com.example.querydsl.controller.MemberController;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.repository.MemberSearchShape;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * MemberController 요청 하나가 요청 스레드에서 할당한 바이트와 쓴 CPU 시간을 ResourceAccounting 에 남긴다.
+ * 이름은 URL 패턴, 모양은 쿼리 파라미터로 만든 MemberSearchCondition 의 모양이다.
+ * <p>
+ * SSE/StreamingResponseBody 처럼 비동기로 넘어가는 요청은 핸들러가 돌아올 때까지만 센다. 그 뒤의 작업은 다른 스레드라
+ * 요청 스레드의 카운터로는 잴 수 없다.
+ */
+public class ResourceAccountingInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String STARTED = ResourceAccountingInterceptor.class.getName() + ".started";
+
+    private final ResourceAccounting accounting;
+
+    public ResourceAccountingInterceptor(ResourceAccounting accounting) {
+        this.accounting = accounting;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod method && MemberController.class.isAssignableFrom(method.getBeanType())) {
+            request.setAttribute(STARTED, new long[]{ThreadResources.allocatedBytes(), ThreadResources.cpuNanos()});
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        record(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        record(request);
+    }
+
+    private void record(HttpServletRequest request) {
+        if (!(request.getAttribute(STARTED) instanceof long[] started)) {
+            return;
+        }
+        request.removeAttribute(STARTED);
+        long allocated = ThreadResources.allocatedBytes();
+        long cpu = ThreadResources.cpuNanos();
+        if (started[0] < 0 || started[1] < 0) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String name = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        accounting.record(ResourceAccounting.REQUEST, name, shape(request), allocated - started[0], cpu - started[1]);
+    }
+
+    /**
+     * 값은 보지 않고 어떤 필터가 들어왔는지만 본다. 숫자가 잘못된 age 도 들어온 것으로 친다.
+     */
+    static String shape(HttpServletRequest request) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(request.getParameter("username"));
+        condition.setUsernameContains(request.getParameter("usernameContains"));
+        condition.setUsernamePrefix(request.getParameter("usernamePrefix"));
+        condition.setTeamName(request.getParameter("teamName"));
+        condition.setAgeGoe(request.getParameter("ageGoe") != null ? 0 : null);
+        condition.setAgeLoe(request.getParameter("ageLoe") != null ? 0 : null);
+        return MemberSearchShape.of(condition).toString();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.querydsl.telemetry;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * /actuator/resourceusage?kind=request&amp;order=cpu&amp;limit=5 로 ResourceAccounting 의 상위 항목을 본다.
+ * kind 는 request/repository, order 는 allocated/cpu/avg_allocated 이고 생략하면 전체, allocated, 설정의 top 이다.
+ * DELETE 는 누적값을 비운다.
+ */
+@Endpoint(id = "resourceusage")
+public class ResourceUsageEndpoint {
+
+    private final ResourceAccounting accounting;
+    private final int defaultLimit;
+
+    public ResourceUsageEndpoint(ResourceAccounting accounting, int defaultLimit) {
+        this.accounting = accounting;
+        this.defaultLimit = defaultLimit;
+    }
+
+    @ReadOperation
+    public List<ResourceAccounting.Usage> top(@Nullable String kind, @Nullable String order, @Nullable Integer limit) {
+        ResourceAccounting.Order sort = order != null
+                ? ResourceAccounting.Order.valueOf(order.toUpperCase(Locale.ROOT))
+                : ResourceAccounting.Order.ALLOCATED;
+        return accounting.top(kind, sort, limit != null ? limit : defaultLimit);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        accounting.reset();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.querydsl.telemetry;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 현재 스레드가 지금까지 할당한 바이트와 쓴 CPU 시간. 구간의 앞뒤 값 차이가 그 구간의 사용량이다.
+ * JVM 이 지원하지 않으면 -1 을 돌려주고, 그 구간은 기록하지 않는다.
+ */
+final class ThreadResources {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private ThreadResources() {
+    }
+
+    static long allocatedBytes() {
+        return THREADS != null && THREADS.isThreadAllocatedMemoryEnabled() ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    static long cpuNanos() {
+        return THREADS != null && THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()
+                ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)) {
+            return null;
+        }
+        if (threads.isThreadAllocatedMemorySupported() && !threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        if (threads.isCurrentThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+            threads.setThreadCpuTimeEnabled(true);
+        }
+        return threads;
+    }
+}
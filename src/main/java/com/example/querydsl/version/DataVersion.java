@@ -0,0 +1,51 @@
+package com.example.querydsl.version;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * member/team 데이터가 바뀔 때마다 올라가는 버전. 검색 응답의 ETag 에 넣어서 바뀐 게 없으면 304 로 돌려준다.
+ * <p>
+ * 버전은 반드시 커밋 뒤에 올린다. 커밋 전에 올리면 그 사이 들어온 요청이 새 버전에 옛 데이터를 묶어서 캐시하게 되고,
+ * 그 응답은 다음 변경이 있을 때까지 304 로 계속 재사용된다. 커밋 뒤에 올리면 반대로 새 데이터가 옛 버전에 묶일 수는 있지만
+ * 그건 다음 요청에서 한 번 더 받아가는 것뿐이다.
+ * 재시작하면 이전 프로세스가 준 ETag 와 겹치지 않도록 시작 시각(ms)에서 출발한다.
+ */
+@Component
+public class DataVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * 현재 트랜잭션이 있으면 커밋된 뒤에 한 번만 올리고, 롤백되면 올리지 않는다. 트랜잭션 밖이면 바로 올린다.
+     */
+    public void changed() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            version.incrementAndGet();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                version.incrementAndGet();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(DataVersion.this);
+            }
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.querydsl.version;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Hibernate 가 실행하는 SQL 중 member/team 을 바꾸는 문장을 보면 DataVersion 을 올린다.
+ * 엔티티 flush 의 insert/update/delete 뿐 아니라 이벤트 리스너를 타지 않는 Querydsl bulk execute() 도 여기서 잡힌다.
+ * JdbcTemplate 으로 직접 쓰는 곳(write-behind, 샤드)은 Hibernate 를 거치지 않으므로 각자 DataVersion.changed() 를 부른다.
+ * 같은 문장을 MemberTableWriteListener 빈들에게도 넘긴다. 엔티티 문장인지 벌크 문장인지는 SQL 모양이 아니라
+ * EntityWriteTracker 가 표시한 엔티티 액션 안에서 나갔는지로 정한다.
+ */
+public class DataVersionStatementInspector implements StatementInspector {
+
+    static final Set<String> TABLES = Set.of("member", "team");
+
+    private final DataVersion dataVersion;
+    private final ObjectProvider<MemberTableWriteListener> listenerProvider;
+    // 리스너 빈 중에는 EntityManagerFactory 에 기대는 것이 있어서 SessionFactory 를 만들 때가 아니라 처음 쓸 때 찾는다.
+    private volatile List<MemberTableWriteListener> listeners;
+
+    public DataVersionStatementInspector(DataVersion dataVersion, ObjectProvider<MemberTableWriteListener> listenerProvider) {
+        this.dataVersion = dataVersion;
+        this.listenerProvider = listenerProvider;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        String table = modifiedTable(sql);
+        if (table != null && TABLES.contains(table)) {
+            boolean bulk = !EntityWriteTracker.consume();
+            for (MemberTableWriteListener listener : listeners()) {
+                listener.beforeWrite(table, sql, bulk);
+            }
+            dataVersion.changed();
+        }
+        return sql;
+    }
+
+    private List<MemberTableWriteListener> listeners() {
+        List<MemberTableWriteListener> resolved = listeners;
+        if (resolved == null) {
+            resolved = listenerProvider.orderedStream().toList();
+            listeners = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * insert into / update / delete from / merge into 뒤의 테이블 이름. 조회문이면 null.
+     */
+    static String modifiedTable(String sql) {
+        String statement = sql.stripLeading();
+        if (statement.isEmpty()) {
+            return null;
+        }
+        char first = Character.toLowerCase(statement.charAt(0));
+        if (first != 'i' && first != 'u' && first != 'd' && first != 'm') {
+            return null;
+        }
+
+        String lower = statement.toLowerCase(Locale.ROOT);
+        String rest;
+        if (lower.startsWith("insert into ")) {
+            rest = lower.substring("insert into ".length());
+        } else if (lower.startsWith("update ")) {
+            rest = lower.substring("update ".length());
+        } else if (lower.startsWith("delete from ")) {
+            rest = lower.substring("delete from ".length());
+        } else if (lower.startsWith("merge into ")) {
+            rest = lower.substring("merge into ".length());
+        } else {
+            return null;
+        }
+
+        rest = rest.stripLeading();
+        int end = 0;
+        while (end < rest.length() && !Character.isWhitespace(rest.charAt(end)) && rest.charAt(end) != '(') {
+            end++;
+        }
+        String table = rest.substring(0, end);
+        int schema = table.lastIndexOf('.');
+        return schema >= 0 ? table.substring(schema + 1) : table;
+    }
+}
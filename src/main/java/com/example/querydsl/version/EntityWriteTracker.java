@@ -0,0 +1,73 @@
+package com.example.querydsl.version;
+
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.event.spi.PreDeleteEvent;
+import org.hibernate.event.spi.PreDeleteEventListener;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Hibernate 가 지금 스레드에서 엔티티 하나를 insert/update/delete 하는 중인지 표시한다.
+ * 엔티티 액션은 Pre* 이벤트, SQL 실행, Post* 이벤트 순서라서 Pre* 에서 켜고 Post* 에서 끈다.
+ * 그 사이에 나가는 문장은 엔티티 문장이고, 켜지지 않은 채 나가는 member/team 쓰기는 JPQL/Querydsl/native 벌크 연산이다.
+ */
+class EntityWriteTracker implements PreInsertEventListener, PreUpdateEventListener, PreDeleteEventListener,
+        PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final ThreadLocal<Boolean> ENTITY_WRITE = new ThreadLocal<>();
+
+    /**
+     * 엔티티 액션 중이었으면 true 를 돌려주고 표시를 지운다. 액션 하나에 문장 하나이므로 한 번 쓰면 끝이다.
+     */
+    static boolean consume() {
+        boolean entityWrite = ENTITY_WRITE.get() != null;
+        ENTITY_WRITE.remove();
+        return entityWrite;
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        ENTITY_WRITE.set(Boolean.TRUE);
+        return false;
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        ENTITY_WRITE.set(Boolean.TRUE);
+        return false;
+    }
+
+    @Override
+    public boolean onPreDelete(PreDeleteEvent event) {
+        ENTITY_WRITE.set(Boolean.TRUE);
+        return false;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        ENTITY_WRITE.remove();
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        ENTITY_WRITE.remove();
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        ENTITY_WRITE.remove();
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+}
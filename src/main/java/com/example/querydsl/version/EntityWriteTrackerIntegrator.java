@@ -0,0 +1,35 @@
+package com.example.querydsl.version;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * SessionFactory 가 만들어질 때 EntityWriteTracker 를 등록해서 DataVersionStatementInspector 가 벌크 문장을 구분하게 한다.
+ * Pre* 도 맨 뒤에 둬서 다른 Pre* 리스너가 예외 없이 끝난 뒤, 곧 SQL 이 나갈 때만 켜지게 한다.
+ */
+@Component
+public class EntityWriteTrackerIntegrator implements Integrator {
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        EntityWriteTracker tracker = new EntityWriteTracker();
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+
+        registry.appendListeners(EventType.PRE_INSERT, tracker);
+        registry.appendListeners(EventType.PRE_UPDATE, tracker);
+        registry.appendListeners(EventType.PRE_DELETE, tracker);
+        registry.appendListeners(EventType.POST_INSERT, tracker);
+        registry.appendListeners(EventType.POST_UPDATE, tracker);
+        registry.appendListeners(EventType.POST_DELETE, tracker);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
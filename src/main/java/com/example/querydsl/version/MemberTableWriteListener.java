@@ -0,0 +1,15 @@
+package com.example.querydsl.version;
+
+/**
+ * Hibernate 가 member/team 을 바꾸는 SQL 을 실행하기 직전에 DataVersionStatementInspector 가 부른다.
+ * 엔티티 flush 와 Querydsl/JPQL 벌크 연산이 모두 여기로 온다. 예외를 던지면 그 문장은 실행되지 않는다.
+ */
+public interface MemberTableWriteListener {
+
+    /**
+     * @param table 소문자 테이블 이름(member 또는 team)
+     * @param sql   실행할 SQL 원문
+     * @param bulk  엔티티 flush 가 아닌 벌크 연산이면 true. 이때는 엔티티 이벤트가 오지 않는다.
+     */
+    void beforeWrite(String table, String sql, boolean bulk);
+}
@@ -0,0 +1,327 @@
+package com.example.querydsl.writebehind;
+
+import com.example.querydsl.config.WriteBehindProperties;
+import com.example.querydsl.repository.ShardedMemberRepository;
+import com.example.querydsl.search.UsernameIndex;
+import com.example.querydsl.version.DataVersion;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 회원 age/username 변경을 모아서 주기적으로 JDBC 배치 update 로 내보내는 write-behind 서비스.
+ * findById -> 변경 -> flush 를 건마다 하는 대신, 회원 id 별로 ConcurrentHashMap 에 합쳐두었다가
+ * (같은 회원의 연속 변경은 마지막 값 하나로 합쳐진다) 한 트랜잭션의 배치 update 로 쓴다.
+ * <p>
+ * 엔티티를 거치지 않으므로 이미 열려있는 영속성 컨텍스트의 Member 는 갱신되지 않고, TeamStatsEventListener 도 타지 않는다.
+ * 그래서 나이가 바뀐 회원의 팀 집계는 stale 로 표시해서 다음 조회 때 다시 계산하게 하고, username 색인과 DataVersion 은 직접 갱신한다.
+ * engine=sharded 면 커밋된 변경을 샤드에도 같은 update 로 보낸다.
+ * <p>
+ * 배치가 실패하면 어느 행 때문인지 모르므로 한 건씩 다시 쓴다. 그래도 실패한 회원은 일시적인 오류면 maxRetries 까지 다음 주기로 넘기고,
+ * 아니면 그 회원의 future 만 실패시킨다. 한 행 때문에 나머지 변경이 막히지 않는다.
+ */
+@Slf4j
+@Service
+public class MemberWriteBehindService {
+
+    static final String UPDATE_MEMBER =
+            "update member set age = coalesce(?, age), username = coalesce(?, username) where member_id = ?";
+    static final String MARK_TEAM_STATS_STALE =
+            "update team_stats set stale = true where team_id = (select team_id from member where member_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteBehindProperties properties;
+    private final UsernameIndex usernameIndex;
+    private final DataVersion dataVersion;
+    private final ObjectProvider<ShardedMemberRepository> shardedMemberRepository;
+
+    private final ConcurrentHashMap<Long, PendingUpdate> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private ScheduledExecutorService scheduler;
+
+    public MemberWriteBehindService(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    WriteBehindProperties properties,
+                                    UsernameIndex usernameIndex,
+                                    DataVersion dataVersion,
+                                    ObjectProvider<ShardedMemberRepository> shardedMemberRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.usernameIndex = usernameIndex;
+        this.dataVersion = dataVersion;
+        this.shardedMemberRepository = shardedMemberRepository;
+    }
+
+    @PostConstruct
+    public void start() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("member-write-behind-");
+        threadFactory.setDaemon(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long interval = properties.getFlushInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 종료 시 남은 변경을 내보낸다.
+     */
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        flushQuietly();
+    }
+
+    public CompletableFuture<Void> changeAge(Long memberId, int age) {
+        return update(memberId, age, null);
+    }
+
+    public CompletableFuture<Void> changeUsername(Long memberId, String username) {
+        return update(memberId, null, username);
+    }
+
+    /**
+     * null 인 값은 바꾸지 않는다. 돌려주는 future 는 이 변경이 커밋되면 완료되고,
+     * 회원이 없으면 EmptyResultDataAccessException 으로 실패한다.
+     * GROUP_COMMIT/WRITE_THROUGH 에서는 커밋될 때까지 기다렸다가 돌아간다. GROUP_COMMIT 이 groupCommitTimeout 안에 끝나지 않으면
+     * QueryTimeoutException 이지만, 변경은 큐에 남아서 나중에 쓰일 수 있다.
+     */
+    public CompletableFuture<Void> update(Long memberId, Integer age, String username) {
+        if (properties.getDurability() == WriteBehindProperties.Durability.WRITE_THROUGH) {
+            PendingUpdate update = new PendingUpdate(age, username, 0, new CompletableFuture<>());
+            TreeMap<Long, PendingUpdate> batch = new TreeMap<>();
+            batch.put(memberId, update);
+            write(batch);
+            return update.flushed();
+        }
+
+        PendingUpdate merged = pending.compute(memberId, (id, current) -> current == null
+                ? new PendingUpdate(age, username, 0, new CompletableFuture<>())
+                : current.then(age, username));
+
+        if (pending.size() >= properties.getMaxPending() && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flushQuietly);
+        }
+
+        if (properties.getDurability() == WriteBehindProperties.Durability.GROUP_COMMIT) {
+            awaitGroupCommit(merged.flushed());
+        }
+        return merged.flushed();
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 지금까지 쌓인 변경을 한 트랜잭션으로 내보낸다. 동시에 하나의 flush 만 돈다.
+     *
+     * @return 내보낸 회원 수
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            if (pending.isEmpty()) {
+                return 0;
+            }
+
+            // id 순으로 써서 다른 writer 와 행 락 순서를 맞춘다.
+            TreeMap<Long, PendingUpdate> batch = new TreeMap<>();
+            for (Long memberId : pending.keySet()) {
+                PendingUpdate update = pending.remove(memberId);
+                if (update != null) {
+                    batch.put(memberId, update);
+                }
+            }
+
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                log.warn("write-behind batch of {} members failed, retrying one by one", batch.size(), e);
+                writeOneByOne(batch);
+            }
+            return batch.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            int flushed = flush();
+            if (flushed > 0) {
+                log.debug("write-behind flushed {} members", flushed);
+            }
+        } catch (RuntimeException e) {
+            log.error("write-behind flush failed, {} members pending", pending.size(), e);
+        }
+    }
+
+    private void write(TreeMap<Long, PendingUpdate> batch) {
+        List<Map.Entry<Long, PendingUpdate>> updates = new ArrayList<>(batch.entrySet());
+        List<Object[]> ageChanged = new ArrayList<>();
+        for (Map.Entry<Long, PendingUpdate> entry : updates) {
+            if (entry.getValue().age() != null) {
+                ageChanged.add(new Object[]{entry.getKey()});
+            }
+        }
+
+        int[][] counts = transactionTemplate.execute(status -> {
+            int[][] result = jdbcTemplate.batchUpdate(UPDATE_MEMBER, updates, properties.getBatchSize(), (ps, entry) -> {
+                ps.setObject(1, entry.getValue().age(), Types.INTEGER);
+                ps.setObject(2, entry.getValue().username(), Types.VARCHAR);
+                ps.setLong(3, entry.getKey());
+            });
+            if (!ageChanged.isEmpty()) {
+                jdbcTemplate.batchUpdate(MARK_TEAM_STATS_STALE, ageChanged);
+            }
+            // Hibernate 를 거치지 않아서 StatementInspector 가 못 보므로 직접 알린다.
+            dataVersion.changed();
+            return result;
+        });
+
+        List<Map.Entry<Long, PendingUpdate>> updated = new ArrayList<>(updates.size());
+        int index = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                Map.Entry<Long, PendingUpdate> entry = updates.get(index++);
+                // 드라이버가 건수를 모르면 SUCCESS_NO_INFO(-2)를 준다.
+                if (count == 0) {
+                    entry.getValue().flushed().completeExceptionally(
+                            new EmptyResultDataAccessException("member " + entry.getKey() + " not found", 1));
+                } else {
+                    updated.add(entry);
+                }
+            }
+        }
+
+        // 샤드까지 쓴 뒤에 future 를 완료해야 기다리던 호출자가 /v2 에서도 바뀐 값을 본다.
+        // 기본 DB 는 이미 커밋됐으므로 샤드 실패는 다시 쓰지 않고 남기기만 한다.
+        if (!updated.isEmpty()) {
+            try {
+                shardedMemberRepository.ifAvailable(repository -> repository.updateMembers(updated.stream()
+                        .map(entry -> new Object[]{entry.getValue().age(), entry.getValue().username(), entry.getKey()})
+                        .toList()));
+            } catch (RuntimeException e) {
+                log.error("write-behind could not apply {} committed member updates to the shards", updated.size(), e);
+            }
+        }
+        for (Map.Entry<Long, PendingUpdate> entry : updated) {
+            if (entry.getValue().username() != null) {
+                usernameIndex.put(entry.getKey(), entry.getValue().username());
+            }
+            entry.getValue().flushed().complete(null);
+        }
+    }
+
+    private void awaitGroupCommit(CompletableFuture<Void> flushed) {
+        // orTimeout 은 같은 회원에 합쳐진 다른 호출자의 future 까지 실패시키므로 기다리는 쪽에서만 시간을 건다.
+        Duration timeout = properties.getGroupCommitTimeout();
+        try {
+            flushed.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("write-behind group commit did not finish within " + timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for write-behind group commit", e);
+        }
+    }
+
+    /**
+     * 배치가 실패했을 때 한 건씩 자기 트랜잭션으로 다시 쓴다.
+     * DB 에 닿지 못하는 오류면 나머지도 똑같이 실패할 것이므로 시도하지 않고 횟수도 세지 않은 채 다음 주기로 넘긴다.
+     */
+    private void writeOneByOne(TreeMap<Long, PendingUpdate> batch) {
+        List<Map.Entry<Long, PendingUpdate>> updates = new ArrayList<>(batch.entrySet());
+        for (int i = 0; i < updates.size(); i++) {
+            Map.Entry<Long, PendingUpdate> entry = updates.get(i);
+            TreeMap<Long, PendingUpdate> single = new TreeMap<>();
+            single.put(entry.getKey(), entry.getValue());
+            try {
+                write(single);
+            } catch (DataAccessResourceFailureException e) {
+                log.error("write-behind cannot reach the database, {} members requeued", updates.size() - i, e);
+                updates.subList(i, updates.size()).forEach(rest -> requeue(rest.getKey(), rest.getValue()));
+                return;
+            } catch (RuntimeException e) {
+                PendingUpdate update = entry.getValue();
+                if (e instanceof TransientDataAccessException && update.attempts() < properties.getMaxRetries()) {
+                    requeue(entry.getKey(), update.retried());
+                } else {
+                    log.warn("write-behind update of member {} failed after {} attempts", entry.getKey(), update.attempts() + 1, e);
+                    update.flushed().completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 실패한 변경을 다시 큐에 넣는다. 그 사이 들어온 같은 회원의 변경이 더 새로우므로 그 값을 우선한다.
+     */
+    private void requeue(Long memberId, PendingUpdate failed) {
+        pending.compute(memberId, (id, current) -> {
+            if (current == null) {
+                return failed;
+            }
+            failed.flushed().whenComplete((result, e) -> {
+                if (e == null) {
+                    current.flushed().complete(null);
+                } else {
+                    current.flushed().completeExceptionally(e);
+                }
+            });
+            return failed.then(current.age(), current.username());
+        });
+    }
+
+    /**
+     * 한 회원에 대해 아직 쓰지 않은 변경. null 인 필드는 바꾸지 않는다. attempts 는 일시적인 오류로 다시 넣은 횟수.
+     */
+    record PendingUpdate(Integer age, String username, int attempts, CompletableFuture<Void> flushed) {
+
+        PendingUpdate then(Integer newerAge, String newerUsername) {
+            return new PendingUpdate(
+                    newerAge != null ? newerAge : age,
+                    newerUsername != null ? newerUsername : username,
+                    attempts,
+                    flushed);
+        }
+
+        PendingUpdate retried() {
+            return new PendingUpdate(age, username, attempts + 1, flushed);
+        }
+    }
+}
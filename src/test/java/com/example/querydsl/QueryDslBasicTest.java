@@ -4,7 +4,8 @@ import com.example.querydsl.dto.MemberDto;
 import com.example.querydsl.dto.UserDto;
 import com.example.querydsl.entity.Member;
 import com.example.querydsl.entity.QMember;
-import com.example.querydsl.entity.Team;
+import com.example.querydsl.support.ExpectedQueries;
+import com.example.querydsl.support.SeededDataset;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.Tuple;
 import com.querydsl.core.types.ExpressionUtils;
@@ -33,6 +34,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 @Transactional
+@SeededDataset
 public class QueryDslBasicTest {
 
     @PersistenceContext
@@ -43,36 +45,12 @@ public class QueryDslBasicTest {
 
     JPAQueryFactory queryFactory;
 
+    /**
+     * teamA(member1, member2), teamB(member3, member4) 는 @SeededDataset 이 스냅샷에서 한 번만 복원해준다.
+     */
     @BeforeEach
     public void before() {
         queryFactory = new JPAQueryFactory(em);
-
-        List<Member> initialMembers = queryFactory.selectFrom(member).fetch();
-        System.out.println("initialMembers = " + initialMembers.size());
-        assertThat(initialMembers.size()).isEqualTo(0);
-
-        Team teamA = new Team("teamA");
-        Team teamB = new Team("teamB");
-        em.persist(teamA);
-        em.persist(teamB);
-
-        Member member1 = new Member("member1", 10, teamA);
-        Member member2 = new Member("member2", 20, teamA);
-
-        Member member3 = new Member("member3", 30, teamB);
-        Member member4 = new Member("member4", 40, teamB);
-
-        em.persist(member1);
-        em.persist(member2);
-        em.persist(member3);
-        em.persist(member4);
-
-        em.flush();
-        em.clear();
-
-        List<Member> afterInitialMembers = queryFactory.selectFrom(member).fetch();
-        System.out.println("afterInitialMembers = " + afterInitialMembers.size());
-        assertThat(afterInitialMembers.size()).isEqualTo(4);
     }
 
     @Test
@@ -291,6 +269,7 @@ public class QueryDslBasicTest {
     }
 
     @Test
+    @ExpectedQueries(select = 1)
     public void fetchJoinNo() {
         em.flush();
         em.clear();
@@ -308,6 +287,7 @@ public class QueryDslBasicTest {
     }
 
     @Test
+    @ExpectedQueries(select = 1)
     public void fetchJoinYes() {
         em.flush();
         em.clear();
@@ -325,6 +305,24 @@ public class QueryDslBasicTest {
         assertTrue(loaded);
     }
 
+    @Test
+    @ExpectedQueries(select = 2)
+    public void lazyTeamsAreBatchFetched() {
+        // 영속성 컨텍스트나 2차 캐시에 Team 이 남아 있으면 IN 쿼리 없이도 통과하므로 둘 다 비운다.
+        em.flush();
+        em.clear();
+        emf.getCache().evictAll();
+
+        List<Member> members = queryFactory
+                .selectFrom(member)
+                .fetch();
+
+        // Team 의 @BatchSize 덕분에 팀 수(100 이하)와 상관없이 IN 쿼리 한 번으로 끝나야 한다. (N+1 이면 여기서 실패)
+        for (Member findMember : members) {
+            assertThat(findMember.getTeam().getName()).isNotNull();
+        }
+    }
+
     @Test
     public void subQuery() {
         QMember memberSub = new QMember("memberSub");
@@ -0,0 +1,175 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.support.DatasetFixture;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hikari 풀 크기와 동시 요청 수를 바꿔가며 회원 검색 엔드포인트의 처리량/p99 를 재서 처리량이 더 늘지 않는 지점(knee)을 찾는다.
+ * 풀 크기는 HikariConfigMXBean 으로 실행 중에 바꾼다. 동시성 제한/쿼리 거버너가 결과를 가리지 않도록 넉넉하게 풀어둔다.
+ * ./gradlew benchmark 로 실행.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:pool-sweep;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=64",
+        "querydsl.concurrency-limit.enabled=false",
+        "querydsl.governor.busy-threshold=100000",
+        "logging.level.org.hibernate.SQL=info"
+})
+class ConnectionPoolSweepBenchmark {
+
+    static final int MEMBERS = 10_000;
+    static final int[] POOL_SIZES = {2, 4, 8, 16, 32};
+    static final int[] CONCURRENCY = {4, 16, 64};
+    static final Duration WARMUP = Duration.ofSeconds(1);
+    static final Duration MEASURE = Duration.ofSeconds(3);
+    static final List<String> PATHS = List.of(
+            "/v1/members?teamName=teamA&ageGoe=30&ageLoe=31",
+            "/v2/members?ageGoe=10&page=3&size=20");
+
+    @LocalServerPort
+    int port;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    DataSource dataSource;
+
+    final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void sweepPoolSizeAndConcurrency() throws Exception {
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+
+        for (int concurrency : CONCURRENCY) {
+            System.out.println("concurrency " + concurrency);
+            List<Result> results = new ArrayList<>();
+            for (int poolSize : POOL_SIZES) {
+                hikari.getHikariConfigMXBean().setMaximumPoolSize(poolSize);
+                hikari.getHikariConfigMXBean().setMinimumIdle(poolSize);
+                run(concurrency, WARMUP, hikari.getHikariPoolMXBean());
+                Result result = run(concurrency, MEASURE, hikari.getHikariPoolMXBean());
+                results.add(new Result(poolSize, result.throughput(), result.p99Millis(), result.maxPending(), result.errors()));
+                System.out.printf("  pool %3d : %8.0f req/s, p99 %6.1f ms, max pending %3d, errors %d%n",
+                        poolSize, result.throughput(), result.p99Millis(), result.maxPending(), result.errors());
+            }
+
+            // 최고 처리량의 95% 에 처음 닿는 풀 크기. 그보다 키워도 대기만 DB 쪽으로 옮겨갈 뿐이다.
+            double best = results.stream().mapToDouble(Result::throughput).max().orElse(0);
+            results.stream()
+                    .filter(result -> result.throughput() >= best * 0.95)
+                    .findFirst()
+                    .ifPresent(knee -> System.out.println("  knee     : pool " + knee.poolSize()));
+        }
+    }
+
+    private Result run(int concurrency, Duration duration, HikariPoolMXBean pool) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger maxPending = new AtomicInteger();
+        List<long[]> latenciesPerThread = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        for (int t = 0; t < concurrency; t++) {
+            long[] latencies = new long[1 << 16];
+            latenciesPerThread.add(latencies);
+            int offset = t;
+            executor.execute(() -> {
+                int n = 0;
+                try {
+                    while (System.nanoTime() < deadline && n < latencies.length - 1) {
+                        String path = PATHS.get((offset + n) % PATHS.size());
+                        long start = System.nanoTime();
+                        if (!get(path)) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[++n] = System.nanoTime() - start;
+                        maxPending.accumulateAndGet(pool.getThreadsAwaitingConnection(), Math::max);
+                    }
+                } finally {
+                    latencies[0] = n;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        long[] all = latenciesPerThread.stream()
+                .flatMapToLong(latencies -> Arrays.stream(latencies, 1, (int) latencies[0] + 1))
+                .sorted()
+                .toArray();
+        double throughput = all.length / (duration.toNanos() / 1e9);
+        double p99 = all.length == 0 ? 0 : all[(int) Math.min(all.length - 1, Math.ceil(all.length * 0.99) - 1)] / 1e6;
+        return new Result(0, throughput, p99, maxPending.get(), errors.get());
+    }
+
+    private boolean get(String path) {
+        try {
+            HttpResponse<Void> response = client.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build(),
+                    HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private record Result(int poolSize, double throughput, double p99Millis, int maxPending, int errors) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.export.MemberExportService;
+import com.example.querydsl.repository.MemberJpaRepository;
+import com.example.querydsl.support.DatasetFixture;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * findAll_Querydsl 로 전부 올려서 한 스레드로 쓰는 방식과 id 구간 병렬 export 를 스레드 수별로 비교한다.
+ * ./gradlew benchmark 로 실행.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.hikari.maximum-pool-size=16")
+class MemberExportBenchmark {
+
+    static final int MEMBERS = 200_000;
+    static final int BATCH = 1_000;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberExportService memberExportService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void before() {
+        Team[] teams = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            return new Team[]{teamA, teamB};
+        });
+        for (int from = 0; from < MEMBERS; from += BATCH) {
+            int start = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                Team teamA = em.getReference(Team.class, teams[0].getId());
+                Team teamB = em.getReference(Team.class, teams[1].getId());
+                for (int i = start; i < start + BATCH; i++) {
+                    em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+                }
+            });
+        }
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void exportThroughput() throws IOException {
+        // 워밍업
+        memberExportService.export(tempDir.resolve("warmup.csv"), 2);
+        findAllAndWrite(tempDir.resolve("warmup-baseline.csv"));
+
+        long start = System.nanoTime();
+        findAllAndWrite(tempDir.resolve("baseline.csv"));
+        report("findAll_Querydsl, 1 thread", System.nanoTime() - start, Files.size(tempDir.resolve("baseline.csv")));
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= Math.min(cores, 12); threads *= 2) {
+            Path target = tempDir.resolve("export-" + threads + ".csv");
+            start = System.nanoTime();
+            MemberExportService.ExportResult result = memberExportService.export(target, threads);
+            report("partitioned export, " + threads + " thread(s), " + result.partitions() + " partitions",
+                    System.nanoTime() - start, result.bytes());
+        }
+    }
+
+    private void findAllAndWrite(Path target) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                for (Member member : memberJpaRepository.findAll_Querydsl()) {
+                    Team team = member.getTeam();
+                    writer.write(member.getId() + "," + member.getUsername() + "," + member.getAge() + ","
+                            + (team == null ? "" : team.getId() + "," + team.getName()) + "\n");
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            em.clear();
+        });
+    }
+
+    private void report(String name, long nanos, long bytes) {
+        long millis = nanos / 1_000_000;
+        System.out.println(name);
+        System.out.println("  " + millis + " ms, " + (MEMBERS * 1_000L / Math.max(1, millis)) + " rows/s, " + bytes + " bytes");
+    }
+}
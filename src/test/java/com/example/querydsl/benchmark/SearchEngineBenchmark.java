@@ -0,0 +1,110 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberRepository;
+import com.example.querydsl.repository.MemberRepositoryQueryDsl;
+import com.example.querydsl.repository.MemberSqlSearchRepository;
+import com.example.querydsl.support.DatasetFixture;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 같은 MemberSearchCondition 을 JPA 엔진과 SQL 엔진으로 반복 실행해서 JPQL/Hibernate 단계의 오버헤드를 비교한다.
+ * ./gradlew benchmark 로 실행.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class SearchEngineBenchmark {
+
+    static final int MEMBERS = 10_000;
+    static final int ITERATIONS = 2_000;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberSqlSearchRepository memberSqlSearchRepository;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void selectiveSearch() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(31);
+
+        // 결과가 작을수록 쿼리 준비 비용의 비중이 커진다.
+        report("search teamA, 30 <= age <= 31", run(memberRepository, condition), run(memberSqlSearchRepository, condition));
+    }
+
+    @Test
+    public void searchPaging() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        report("searchPaging age >= 10, page size 20",
+                runPaging(memberRepository, condition), runPaging(memberSqlSearchRepository, condition));
+    }
+
+    private long run(MemberRepositoryQueryDsl engine, MemberSearchCondition condition) {
+        return measure(() -> engine.search(condition));
+    }
+
+    private long runPaging(MemberRepositoryQueryDsl engine, MemberSearchCondition condition) {
+        return measure(() -> engine.searchPaging(condition, PageRequest.of(3, 20)));
+    }
+
+    private long measure(Runnable call) {
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            transactionTemplate.executeWithoutResult(status -> call.run());
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            transactionTemplate.executeWithoutResult(status -> call.run());
+        }
+        return (System.nanoTime() - start) / ITERATIONS / 1_000;
+    }
+
+    private void report(String name, long jpa, long sql) {
+        System.out.println(name);
+        System.out.println("  jpa engine : " + jpa + " us/op");
+        System.out.println("  sql engine : " + sql + " us/op");
+    }
+}
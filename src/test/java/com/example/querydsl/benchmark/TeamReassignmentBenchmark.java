@@ -0,0 +1,110 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.support.DatasetFixture;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 큰 팀으로 멤버를 대량 이동할 때, 반대편 컬렉션을 로딩하는 방식과 로딩하지 않는 방식의 비용을 비교한다.
+ * ./gradlew benchmark 로 실행.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class TeamReassignmentBenchmark {
+
+    static final int TEAM_SIZE = 20_000;
+    static final int MOVED = 1_000;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    Long bigTeamId;
+    Long lazyTeamId;
+    Long initializedTeamId;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team bigTeam = new Team("bigTeam");
+            Team lazyTeam = new Team("lazyTeam");
+            Team initializedTeam = new Team("initializedTeam");
+            em.persist(bigTeam);
+            em.persist(lazyTeam);
+            em.persist(initializedTeam);
+
+            for (int i = 0; i < TEAM_SIZE; i++) {
+                em.persist(new Member("big" + i, i % 100, bigTeam));
+                if (i % 1_000 == 0) {
+                    em.flush();
+                    em.clear();
+                    bigTeam = em.getReference(Team.class, bigTeam.getId());
+                }
+            }
+            for (int i = 0; i < MOVED; i++) {
+                em.persist(new Member("lazy" + i, i % 100, lazyTeam));
+                em.persist(new Member("initialized" + i, i % 100, initializedTeam));
+            }
+            bigTeamId = bigTeam.getId();
+            lazyTeamId = lazyTeam.getId();
+            initializedTeamId = initializedTeam.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void bulkReassignIntoBigTeam() {
+        long lazy = reassign(lazyTeamId, false);
+        long initialized = reassign(initializedTeamId, true);
+
+        System.out.println("reassign " + MOVED + " members into a team of " + TEAM_SIZE);
+        System.out.println("  inverse side untouched   : " + lazy + " ms");
+        System.out.println("  inverse side initialized : " + initialized + " ms");
+    }
+
+    private long reassign(Long sourceId, boolean initializeInverseSide) {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            Team target = em.find(Team.class, bigTeamId);
+            if (initializeInverseSide) {
+                Hibernate.initialize(target.getMembers());
+            }
+
+            List<Member> moving = em.createQuery(
+                            "SELECT m FROM Member m WHERE m.team.id = :teamId", Member.class)
+                    .setParameter("teamId", sourceId)
+                    .setMaxResults(MOVED)
+                    .getResultList();
+            for (Member member : moving) {
+                member.changeTeam(target);
+            }
+            em.flush();
+
+            assertThat(Hibernate.isInitialized(target.getMembers())).isEqualTo(initializeInverseSide);
+        });
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
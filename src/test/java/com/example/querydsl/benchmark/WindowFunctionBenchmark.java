@@ -0,0 +1,123 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.QMember;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberSqlRepository;
+import com.example.querydsl.support.DatasetFixture;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 상관 서브쿼리(JPQL) 와 윈도우 함수(querydsl-sql) 로 같은 질문에 답할 때의 비용 비교.
+ * ./gradlew benchmark 로 실행.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class WindowFunctionBenchmark {
+
+    static final int TEAMS = 50;
+    static final int MEMBERS_PER_TEAM = 200;
+    static final int ITERATIONS = 5;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int t = 0; t < TEAMS; t++) {
+                Team team = new Team("team" + t);
+                em.persist(team);
+                for (int i = 0; i < MEMBERS_PER_TEAM; i++) {
+                    em.persist(new Member("member" + t + "_" + i, (i * 7 + t) % 90, team));
+                }
+                em.flush();
+                em.clear();
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void oldestMemberPerTeam() {
+        QMember memberSub = new QMember("memberSub");
+
+        long subquery = measure(() -> queryFactory
+                .selectFrom(member)
+                .where(member.age.eq(
+                        JPAExpressions
+                                .select(memberSub.age.max())
+                                .from(memberSub)
+                                .where(memberSub.team.eq(member.team))))
+                .fetch());
+        long window = measure(() -> memberSqlRepository.findOldestPerTeam(1));
+
+        System.out.println("oldest member per team (" + TEAMS * MEMBERS_PER_TEAM + " members)");
+        System.out.println("  correlated subquery : " + subquery + " ms");
+        System.out.println("  row_number()        : " + window + " ms");
+    }
+
+    @Test
+    public void ageRankWithinTeam() {
+        QMember memberSub = new QMember("memberSub");
+
+        long subquery = measure(() -> queryFactory
+                .select(member.username,
+                        JPAExpressions
+                                .select(memberSub.count())
+                                .from(memberSub)
+                                .where(memberSub.team.eq(member.team),
+                                        memberSub.age.gt(member.age)))
+                .from(member)
+                .fetch());
+        long window = measure(() -> memberSqlRepository.findAgeRankWithinTeam());
+
+        System.out.println("age rank within team (" + TEAMS * MEMBERS_PER_TEAM + " members)");
+        System.out.println("  correlated subquery : " + subquery + " ms");
+        System.out.println("  rank()              : " + window + " ms");
+    }
+
+    private long measure(Supplier<List<?>> query) {
+        // warm-up
+        transactionTemplate.execute(status -> query.get());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            List<?> result = transactionTemplate.execute(status -> query.get());
+            assertThat(result).isNotEmpty();
+        }
+        return (System.nanoTime() - start) / 1_000_000 / ITERATIONS;
+    }
+}
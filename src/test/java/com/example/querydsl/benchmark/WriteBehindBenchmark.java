@@ -0,0 +1,122 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberJpaRepository;
+import com.example.querydsl.support.DatasetFixture;
+import com.example.querydsl.writebehind.MemberWriteBehindService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongConsumer;
+
+/**
+ * 회원 나이 변경 폭주를 findById -> 변경 -> 커밋을 건마다 하는 방식과 write-behind 로 처리할 때의 처리량을 비교한다.
+ * 일부 회원에 변경이 몰리는(hot key) 분포라서 write-behind 쪽은 합쳐지는 만큼 실제 update 수가 줄어든다.
+ * ./gradlew benchmark 로 실행.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class WriteBehindBenchmark {
+
+    static final int MEMBERS = 10_000;
+    static final int HOT_MEMBERS = 100;
+    static final int UPDATES = 50_000;
+    static final int THREADS = 8;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberWriteBehindService memberWriteBehindService;
+
+    List<Long> memberIds = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 0; i < MEMBERS; i++) {
+                Member member = new Member("member" + i, i % 100, teamA);
+                em.persist(member);
+                memberIds.add(member.getId());
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        memberWriteBehindService.flush();
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void ageUpdateThroughput() throws Exception {
+        long perEntity = run(memberId -> transactionTemplate.executeWithoutResult(status ->
+                memberJpaRepository.findById(memberId).ifPresent(member -> member.changeAge(nextAge()))));
+
+        long writeBehind = run(memberId -> memberWriteBehindService.changeAge(memberId, nextAge()));
+        long start = System.nanoTime();
+        memberWriteBehindService.flush();
+        long drain = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println(UPDATES + " age updates, " + THREADS + " threads, 80% on " + HOT_MEMBERS + " hot members");
+        System.out.println("  findById + flush per update : " + perEntity + " ms (" + UPDATES * 1_000L / Math.max(1, perEntity) + " updates/s)");
+        System.out.println("  write-behind (buffered)     : " + writeBehind + " ms + final flush " + drain + " ms ("
+                + UPDATES * 1_000L / Math.max(1, writeBehind + drain) + " updates/s)");
+    }
+
+    private long run(LongConsumer update) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < UPDATES / THREADS; i++) {
+                        update.accept(nextMemberId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return (System.nanoTime() - start) / 1_000_000;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private long nextMemberId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(10) < 8 ? random.nextInt(HOT_MEMBERS) : random.nextInt(MEMBERS);
+        return memberIds.get(index);
+    }
+
+    private int nextAge() {
+        return ThreadLocalRandom.current().nextInt(100);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.querydsl.controller;
+
+import com.example.querydsl.config.QueryGovernorProperties;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.support.DatasetFixture;
+import com.example.querydsl.version.DataVersion;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * DataVersion 은 커밋 뒤에 올라가므로 트랜잭션을 직접 나눠서 검증한다.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerETagTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    DataVersion dataVersion;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    QueryGovernorProperties governorProperties;
+
+    Long member1Id;
+
+    @BeforeEach
+    public void before() {
+        member1Id = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("member2", 20, teamA));
+            return member1.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void sameVersionAnswersNotModified() throws Exception {
+        String etag = etag("/v2/members?teamName=teamA&page=0&size=10");
+
+        mockMvc.perform(get("/v2/members?teamName=teamA&page=0&size=10").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        mockMvc.perform(get("/v1/members?teamName=teamA"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Test
+    public void equivalentConditionsShareETag() throws Exception {
+        assertThat(etag("/v1/members?usernameContains=MEMBER&username="))
+                .isEqualTo(etag("/v1/members?usernameContains=member"));
+        assertThat(etag("/v2/members?page=0&size=10"))
+                .isNotEqualTo(etag("/v2/members?page=1&size=10"))
+                .isNotEqualTo(etag("/v2/members?page=0&size=10&count=APPROXIMATE"));
+    }
+
+    @Test
+    public void entityChangeInvalidatesAfterCommit() throws Exception {
+        String etag = etag("/v1/members?username=member1");
+        long before = dataVersion.current();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.find(Member.class, member1Id).changeAge(11);
+            em.flush();
+            // 커밋 전에는 아직 이전 버전이다.
+            assertThat(dataVersion.current()).isEqualTo(before);
+        });
+
+        mockMvc.perform(get("/v1/members?username=member1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].age").value(11));
+    }
+
+    @Test
+    public void bulkUpdateInvalidates() {
+        long before = dataVersion.current();
+
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .execute());
+
+        assertThat(dataVersion.current()).isGreaterThan(before);
+    }
+
+    @Test
+    public void rollbackAndReadsKeepVersion() throws Exception {
+        long before = dataVersion.current();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("member3", 30));
+            em.flush();
+            status.setRollbackOnly();
+        });
+        mockMvc.perform(get("/v2/members?teamName=teamA")).andExpect(status().isOk());
+
+        assertThat(dataVersion.current()).isEqualTo(before);
+    }
+
+    /**
+     * 부하 때문에 APPROXIMATE 로 낮춘 응답은 온전한 응답의 ETag 를 받지 않고, 그 ETag 로 304 가 나가지도 않는다.
+     */
+    @Test
+    public void downgradedResponseDoesNotReuseETag() throws Exception {
+        String uri = "/v2/members?teamName=teamA&page=0&size=10";
+        String full = etag(uri);
+
+        int busyThreshold = governorProperties.getBusyThreshold();
+        governorProperties.setBusyThreshold(0);
+        String downgraded;
+        try {
+            downgraded = mockMvc.perform(get(uri))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(MemberController.COUNT_MODE_HEADER, "APPROXIMATE"))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            // 이미 온전한 응답을 가진 클라이언트에게는 그대로 304 를 준다.
+            mockMvc.perform(get(uri).header(HttpHeaders.IF_NONE_MATCH, full))
+                    .andExpect(status().isNotModified());
+        } finally {
+            governorProperties.setBusyThreshold(busyThreshold);
+        }
+
+        assertThat(downgraded).isNotEqualTo(full);
+        mockMvc.perform(get(uri).header(HttpHeaders.IF_NONE_MATCH, downgraded))
+                .andExpect(status().isOk())
+                .andExpect(header().string(MemberController.COUNT_MODE_HEADER, "EXACT"))
+                .andExpect(header().string(HttpHeaders.ETAG, full));
+    }
+
+    private String etag(String uri) throws Exception {
+        return mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
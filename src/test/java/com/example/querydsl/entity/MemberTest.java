@@ -2,12 +2,15 @@ package com.example.querydsl.entity;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.*;
+
 @SpringBootTest
 @Transactional
 class MemberTest {
@@ -43,4 +46,47 @@ class MemberTest {
             System.out.println("member = " + member.getTeam());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void changeTeamDoesNotInitializeLazyMembers() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamB);
+        em.persist(member1);
+        em.persist(member2);
+
+        em.flush();
+        em.clear();
+
+        Member findMember = em.find(Member.class, member1.getId());
+        Team oldTeam = findMember.getTeam();
+        Team newTeam = em.find(Team.class, teamB.getId());
+
+        findMember.changeTeam(newTeam);
+
+        assertThat(Hibernate.isInitialized(oldTeam)).isFalse();
+        assertThat(Hibernate.isInitialized(newTeam.getMembers())).isFalse();
+
+        em.flush();
+        em.clear();
+
+        Team findTeam = em.find(Team.class, teamB.getId());
+        assertThat(findTeam.getMembers()).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+    }
+
+    @Test
+    public void changeTeamKeepsInitializedMembersInSync() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        Member member1 = new Member("member1", 10, teamA);
+        member1.changeTeam(teamB);
+
+        assertThat(teamA.getMembers()).isEmpty();
+        assertThat(teamB.getMembers()).containsExactly(member1);
+    }
+}
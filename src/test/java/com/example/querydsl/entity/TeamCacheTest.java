@@ -0,0 +1,117 @@
+package com.example.querydsl.entity;
+
+import com.example.querydsl.config.SecondLevelCacheConfig;
+import com.example.querydsl.repository.TeamRepository;
+import com.example.querydsl.support.DatasetFixture;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 2차 캐시는 커밋된 데이터만 담기 때문에 @Transactional 롤백 테스트가 아니라 트랜잭션을 직접 나눠서 검증한다.
+ */
+@SpringBootTest
+class TeamCacheTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    Statistics statistics;
+    Long memberId;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            memberId = member1.getId();
+        });
+
+        emf.getCache().evictAll();
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void lazyTeamIsServedFromSecondLevelCache() {
+        long firstStatements = loadMemberAndTouchTeam();
+        long secondStatements = loadMemberAndTouchTeam();
+
+        // 첫 번째: member 조회 + team 지연 로딩, 두 번째: team은 2차 캐시에서 가져온다
+        assertThat(firstStatements).isEqualTo(2);
+        assertThat(secondStatements).isEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics(SecondLevelCacheConfig.TEAM_REGION).getHitCount())
+                .isEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics(SecondLevelCacheConfig.TEAM_REGION).getMissCount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void membersCollectionIsServedFromSecondLevelCache() {
+        Long teamId = transactionTemplate.execute(status ->
+                em.find(Member.class, memberId).getTeam().getId());
+
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(em.find(Team.class, teamId).getMembers()).hasSize(1));
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(em.find(Team.class, teamId).getMembers()).hasSize(1));
+
+        assertThat(statistics.getDomainDataRegionStatistics(SecondLevelCacheConfig.TEAM_MEMBERS_REGION).getHitCount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void findByNameUsesQueryCache() {
+        long before = statistics.getPrepareStatementCount();
+        transactionTemplate.executeWithoutResult(status -> assertThat(teamRepository.findByName("teamA")).isPresent());
+        long afterFirst = statistics.getPrepareStatementCount();
+        transactionTemplate.executeWithoutResult(status -> assertThat(teamRepository.findByName("teamA")).isPresent());
+        long afterSecond = statistics.getPrepareStatementCount();
+
+        assertThat(afterFirst - before).isEqualTo(1);
+        assertThat(afterSecond - afterFirst).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+
+    private long loadMemberAndTouchTeam() {
+        long before = statistics.getPrepareStatementCount();
+        transactionTemplate.executeWithoutResult(status -> {
+            Member findMember = em.createQuery("SELECT m FROM Member m WHERE m.id = :id", Member.class)
+                    .setParameter("id", memberId)
+                    .getSingleResult();
+            assertThat(findMember.getTeam().getName()).isEqualTo("teamA");
+        });
+        return statistics.getPrepareStatementCount() - before;
+    }
+}
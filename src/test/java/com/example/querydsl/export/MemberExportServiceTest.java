@@ -0,0 +1,116 @@
+package com.example.querydsl.export;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.support.DatasetFixture;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 파티션은 각자 다른 스레드/커넥션에서 읽으므로 롤백 테스트가 아니라 커밋된 데이터로 검증한다.
+ */
+@SpringBootTest
+class MemberExportServiceTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    MemberExportService memberExportService;
+
+    @TempDir
+    Path tempDir;
+
+    List<Long> memberIds = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("team, \"B\"");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            for (int i = 0; i < 50; i++) {
+                Member member = new Member("member" + i, i, i % 2 == 0 ? teamA : teamB);
+                em.persist(member);
+                memberIds.add(member.getId());
+            }
+            Member noTeam = new Member("noTeam", 99);
+            em.persist(noTeam);
+            memberIds.add(noTeam.getId());
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void exportWritesEveryMemberInIdOrder() throws Exception {
+        Path target = tempDir.resolve("members.csv");
+
+        MemberExportService.ExportResult result = memberExportService.export(target, 3);
+
+        List<String> lines = Files.readAllLines(target, StandardCharsets.UTF_8);
+        assertThat(result.rows()).isEqualTo(51);
+        assertThat(result.partitions()).isGreaterThan(1);
+        assertThat(result.bytes()).isEqualTo(Files.size(target));
+        assertThat(lines).hasSize(52);
+        assertThat(lines.get(0) + "\n").isEqualTo(MemberExportService.HEADER);
+        assertThat(lines.subList(1, lines.size()))
+                .extracting(line -> Long.valueOf(line.substring(0, line.indexOf(','))))
+                .containsExactlyElementsOf(memberIds);
+        assertThat(lines.get(2)).isEqualTo(memberIds.get(1) + ",member1,1," + teamIdOf(lines.get(2)) + ",\"team, \"\"B\"\"\"");
+        assertThat(lines.get(lines.size() - 1)).isEqualTo(memberIds.get(50) + ",noTeam,99,,");
+    }
+
+    @Test
+    public void exportOfEmptyTableWritesOnlyHeader() throws Exception {
+        after();
+        Path target = tempDir.resolve("empty.csv");
+
+        MemberExportService.ExportResult result = memberExportService.export(target, 2);
+
+        assertThat(result.rows()).isZero();
+        assertThat(Files.readString(target)).isEqualTo(MemberExportService.HEADER);
+    }
+
+    @Test
+    public void splitCoversRangeWithoutGaps() {
+        List<MemberExportService.IdRange> ranges = MemberExportService.IdRange.split(10, 20, 4);
+
+        assertThat(ranges).containsExactly(
+                new MemberExportService.IdRange(10, 12),
+                new MemberExportService.IdRange(13, 15),
+                new MemberExportService.IdRange(16, 18),
+                new MemberExportService.IdRange(19, 20));
+        assertThat(MemberExportService.IdRange.split(5, 6, 8)).hasSize(2);
+    }
+
+    private String teamIdOf(String line) {
+        return line.split(",")[3];
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.querydsl.governor;
+
+import com.example.querydsl.config.MemberSearchProperties;
+import com.example.querydsl.config.QueryGovernorProperties;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberJpaRepository;
+import com.example.querydsl.stats.MemberCountEstimator;
+import com.example.querydsl.stats.TeamStatsService;
+import com.example.querydsl.support.DatasetFixture;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * team_stats 는 커밋 직전에 반영되므로 트랜잭션을 직접 나눠서 검증한다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:governor;DB_CLOSE_DELAY=-1",
+        "querydsl.governor.endpoints.members-v1.max-rows=30",
+        "querydsl.governor.endpoints.members-v2.max-rows=20"
+})
+class QueryGovernorTest {
+
+    static final int MEMBERS = 400;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    QueryGovernor queryGovernor;
+
+    @Autowired
+    QueryGovernorProperties properties;
+
+    @Autowired
+    MemberCountEstimator memberCountEstimator;
+
+    @Autowired
+    MemberSearchProperties searchProperties;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    TeamStatsService teamStatsService;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+        // stale 인 팀 집계를 다시 계산해둔다.
+        teamStatsService.findAll();
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void truncatesAtMaxRows() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        GovernedList<MemberTeamDto> result = queryGovernor.list("members-v1", condition,
+                limit -> memberJpaRepository.search(condition, limit));
+
+        assertThat(result.content()).hasSize(30);
+        assertThat(result.truncated()).isTrue();
+        assertThat(result.downgraded()).isFalse();
+        assertThat(queryGovernor.inFlight()).isZero();
+    }
+
+    @Test
+    public void smallResultIsNotTruncated() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member7");
+
+        GovernedList<MemberTeamDto> result = queryGovernor.list("members-v1", condition,
+                limit -> memberJpaRepository.search(condition, limit));
+
+        assertThat(result.content()).extracting("username").containsExactly("member7");
+        assertThat(result.truncated()).isFalse();
+    }
+
+    @Test
+    public void runsInsideReadOnlyTransactionAndBoundsPageSize() {
+        Boolean readOnly = queryGovernor.run("members-v2", busy -> {
+            assertThat(busy).isFalse();
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        });
+        assertThat(readOnly).isTrue();
+
+        Pageable bounded = queryGovernor.bound("members-v2", PageRequest.of(3, 100));
+        assertThat(bounded.getPageSize()).isEqualTo(20);
+        assertThat(bounded.getPageNumber()).isEqualTo(3);
+        assertThat(queryGovernor.bound("members-v2", PageRequest.of(0, 10)).getPageSize()).isEqualTo(10);
+    }
+
+    @Test
+    public void underLoadDowngradesOrRejectsByEstimate() {
+        QueryGovernor busyGovernor = new QueryGovernor(busyProperties(), transactionManager, memberCountEstimator, searchProperties);
+
+        // teamA 는 team_stats 로 200 건이라고 바로 안다. maxRows(30) 를 넘으므로 underLoadMaxRows 로 줄인다.
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+        GovernedList<MemberTeamDto> downgraded = busyGovernor.list("members-v1", teamA,
+                limit -> memberJpaRepository.search(teamA, limit));
+        assertThat(downgraded.downgraded()).isTrue();
+        assertThat(downgraded.truncated()).isTrue();
+        assertThat(downgraded.content()).hasSize(10);
+
+        // 조건이 없으면 400 건으로 rejectEstimatedRows(300) 를 넘는다.
+        MemberSearchCondition all = new MemberSearchCondition();
+        assertThatThrownBy(() -> busyGovernor.list("members-v1", all, limit -> memberJpaRepository.search(all, limit)))
+                .isInstanceOf(QueryRejectedException.class);
+        assertThat(busyGovernor.inFlight()).isZero();
+    }
+
+    private QueryGovernorProperties busyProperties() {
+        QueryGovernorProperties busy = new QueryGovernorProperties();
+        busy.setBusyThreshold(0);
+        busy.setRejectEstimatedRows(300);
+        busy.setUnderLoadMaxRows(10);
+        busy.setEndpoints(properties.getEndpoints());
+        return busy;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.querydsl.importer;
+
+import com.example.querydsl.config.MemberImportProperties;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.TeamStatsDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberRepository;
+import com.example.querydsl.repository.ShardedMemberRepository;
+import com.example.querydsl.repository.TeamRepository;
+import com.example.querydsl.search.UsernameIndex;
+import com.example.querydsl.stats.TeamStatsService;
+import com.example.querydsl.support.DatasetFixture;
+import com.example.querydsl.version.DataVersion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * import 는 StatelessSession 으로 배치마다 커밋하므로 롤백 테스트가 아니라 커밋된 데이터로 검증한다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:member-import;DB_CLOSE_DELAY=-1",
+        "querydsl.import.batch-size=2"
+})
+class MemberImportServiceTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    MemberImportService memberImportService;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    TeamStatsService teamStatsService;
+
+    @Autowired
+    DataVersion dataVersion;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("existing", 60, teamA));
+        });
+        teamStatsService.findAll();
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void importsCsvAndRejectsInvalidRows() throws Exception {
+        // MemberExportService 가 쓰는 헤더 그대로다. member_id/team_id 는 무시한다.
+        Path source = write("members.csv", """
+                member_id,username,age,team_id,team_name
+                1,alice,20,1,teamA
+                2,"bob, jr",30,,
+                3,carol,abc,1,teamA
+                4,dave,40,9,teamZ
+
+                5,"eve
+                smith",50,1,teamA
+                """);
+        Path rejects = tempDir.resolve("members.rejects");
+        long version = dataVersion.current();
+
+        MemberImportService.ImportResult result = memberImportService.importMembers(source, rejects);
+
+        assertThat(result.read()).isEqualTo(5);
+        assertThat(result.imported()).isEqualTo(3);
+        assertThat(result.rejected()).isEqualTo(2);
+        assertThat(result.rowsPerSecond()).isPositive();
+        assertThat(Files.readAllLines(rejects))
+                .containsExactly(
+                        "4\tage is not a number: abc\t3,carol,abc,1,teamA",
+                        "5\tunknown team: teamZ\t4,dave,40,9,teamZ");
+
+        assertThat(memberRepository.search(new MemberSearchCondition()))
+                .extracting("username", "age", "teamName")
+                .containsExactlyInAnyOrder(
+                        tuple("existing", 60, "teamA"),
+                        tuple("alice", 20, "teamA"),
+                        tuple("bob, jr", 30, null),
+                        tuple("eve\nsmith", 50, "teamA"));
+
+        // 이벤트를 거치지 않은 변경도 검색 색인, 팀 집계, ETag 버전에 반영된다.
+        MemberSearchCondition contains = new MemberSearchCondition();
+        contains.setUsernameContains("jr");
+        assertThat(memberRepository.search(contains)).extracting("username").containsExactly("bob, jr");
+        assertThat(teamStatsService.findAll())
+                .extracting(TeamStatsDto::getTeamName, TeamStatsDto::getMemberCount)
+                .containsExactly(tuple("teamA", 3L));
+        assertThat(dataVersion.current()).isGreaterThan(version);
+    }
+
+    @Test
+    public void importsNdjsonAndCreatesMissingTeams(@Autowired EntityManagerFactory entityManagerFactory,
+                                                    @Autowired ObjectMapper objectMapper,
+                                                    @Autowired UsernameIndex usernameIndex,
+                                                    @Autowired ObjectProvider<ShardedMemberRepository> shardedMemberRepository) throws Exception {
+        MemberImportProperties properties = new MemberImportProperties();
+        properties.setCreateMissingTeams(true);
+        MemberImportService creatingTeams = new MemberImportService(entityManagerFactory, objectMapper, properties,
+                usernameIndex, teamStatsService, dataVersion, shardedMemberRepository);
+        Path source = write("members.ndjson", """
+                {"username":"frank","age":33,"teamName":"teamNew"}
+
+                {"username":"grace","age":"x"}
+                not json
+                {"username":"heidi","age":44,"team_name":"teamA"}
+                """);
+        Path rejects = tempDir.resolve("members.rejects");
+
+        MemberImportService.ImportResult result = creatingTeams.importMembers(source, rejects);
+
+        assertThat(result.imported()).isEqualTo(2);
+        assertThat(result.rejected()).isEqualTo(2);
+        assertThat(result.createdTeams()).isEqualTo(1);
+        List<String> rejected = Files.readAllLines(rejects);
+        assertThat(rejected).hasSize(2);
+        assertThat(rejected.get(0)).startsWith("3\tage is not a number: x\t");
+        assertThat(rejected.get(1)).startsWith("4\tinvalid json");
+
+        Team teamNew = teamRepository.findByName("teamNew").orElseThrow();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamNew");
+        assertThat(memberRepository.search(condition))
+                .extracting("username", "teamId")
+                .containsExactly(tuple("frank", teamNew.getId()));
+    }
+
+    private Path write(String name, String content) throws Exception {
+        Path path = tempDir.resolve(name);
+        Files.writeString(path, content, StandardCharsets.UTF_8);
+        return path;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.querydsl.limit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConcurrencyLimitInterceptorTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ConcurrencyLimitInterceptor interceptor;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void rejectsImmediatelyWhenBudgetIsUsedUp() throws Exception {
+        AimdLimiter v1 = interceptor.limiter("v1");
+        int held = 0;
+        while (v1.tryAcquire()) {
+            held++;
+        }
+        try {
+            mockMvc.perform(get("/v1/members"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+            // v1 이 꽉 차도 v2 예산은 따로다.
+            mockMvc.perform(get("/v2/members")).andExpect(status().isOk());
+        } finally {
+            for (int i = 0; i < held; i++) {
+                v1.release(0, false);
+            }
+        }
+
+        mockMvc.perform(get("/v1/members")).andExpect(status().isOk());
+        assertThat(v1.getInFlight()).isZero();
+        assertThat(meterRegistry.get("member.concurrency.rejected").tag("endpoint", "v1").functionCounter().count())
+                .isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void limitGrowsUnderLoadAndShrinksWhenSlow() {
+        long threshold = Duration.ofMillis(100).toNanos();
+        AimdLimiter limiter = new AimdLimiter(4, 2, 6, threshold, 0.5);
+
+        // 한도까지 쓰고 있는 상태에서 제때 끝나면 1 씩 늘어난다.
+        for (int i = 0; i < 4; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        assertThat(limiter.tryAcquire()).isFalse();
+        limiter.release(threshold / 2, false);
+        assertThat(limiter.getLimit()).isEqualTo(5);
+
+        // 느리면 절반으로 줄지만 minLimit 아래로는 내려가지 않는다.
+        limiter.release(threshold * 2, false);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        limiter.release(0, true);
+        limiter.release(0, true);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(limiter.getRejected()).isEqualTo(1);
+    }
+}
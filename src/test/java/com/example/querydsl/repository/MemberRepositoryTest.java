@@ -2,25 +2,34 @@ package com.example.querydsl.repository;
 
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.dto.QMemberTeamDto;
 import com.example.querydsl.entity.Member;
 import com.example.querydsl.entity.QMember;
 import com.example.querydsl.entity.Team;
+import com.example.querydsl.support.ExpectedQueries;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 import static com.example.querydsl.entity.QMember.*;
+import static com.example.querydsl.entity.QTeam.team;
 import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 @Transactional
 class MemberRepositoryTest {
 
@@ -30,6 +39,9 @@ class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    MockMvc mockMvc;
+
     @BeforeEach
     public void beforeEach() {
         Team teamA = new Team("teamA");
@@ -126,6 +138,7 @@ class MemberRepositoryTest {
     }
 
     @Test
+    @ExpectedQueries(select = 1)
     public void querydslPredicateExecutorTest() {
         Iterable<Member> result = memberRepository
                 .findAll(member.age.between(10, 40)
@@ -135,4 +148,40 @@ class MemberRepositoryTest {
             System.out.println("member1 = " + member1);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    @ExpectedQueries(select = 2)
+    public void projectionPredicateExecutorTest() {
+        Page<MemberTeamDto> result = memberRepository.findAll(
+                member.age.between(10, 40).and(team.name.eq("teamB")),
+                PageRequest.of(0, 10),
+                new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name));
+
+        assertThat(result.getContent())
+                .extracting("username", "teamName")
+                .containsExactlyInAnyOrder(tuple("member3", "teamB"), tuple("member4", "teamB"));
+        assertThat(result.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    public void projectionPredicateExecutorSortTest() {
+        Page<MemberTeamDto> result = memberRepository.findAll(
+                member.age.goe(10),
+                PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age")),
+                new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name));
+
+        assertThat(result.getContent()).extracting("username").containsExactly("member4", "member3");
+        assertThat(result.getTotalElements()).isEqualTo(4);
+    }
+
+    /**
+     * 파라미터가 없으면 @QuerydslPredicate 가 빈 BooleanBuilder 를 넘긴다.
+     */
+    @Test
+    public void projectionPredicateExecutorWithoutParams() throws Exception {
+        mockMvc.perform(get("/v3/members"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(4))
+                .andExpect(jsonPath("$.totalElements").value(4));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class MemberSearchQueryCacheTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberSearchQueryCache searchQueryCache;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+    }
+
+    @Test
+    public void sameShapeReusesCompiledQuery() {
+        List<MemberTeamDto> first = memberJpaRepository.search(condition("teamA", 10));
+        int size = searchQueryCache.size();
+        double hits = hits();
+
+        List<MemberTeamDto> second = memberJpaRepository.search(condition("teamB", 35));
+
+        assertThat(first).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+        assertThat(second).extracting("username").containsExactly("member4");
+        assertThat(searchQueryCache.size()).isEqualTo(size);
+        assertThat(hits()).isEqualTo(hits + 1);
+    }
+
+    @Test
+    public void shapesMatchUncachedSemantics() {
+        MemberSearchCondition empty = new MemberSearchCondition();
+        empty.setUsername("");
+        assertThat(memberJpaRepository.search(empty)).hasSize(5);
+
+        MemberSearchCondition username = new MemberSearchCondition();
+        username.setUsername("member5");
+        assertThat(memberJpaRepository.search(username))
+                .extracting("username", "teamId", "teamName")
+                .containsExactly(tuple("member5", null, null));
+
+        // searchByBuilder 는 캐시를 거치지 않는 BooleanBuilder 예제라 비교 기준으로 쓴다.
+        MemberSearchCondition teamB = condition("teamB", null);
+        assertThat(memberJpaRepository.searchByBuilder(teamB))
+                .extracting("username").containsExactlyInAnyOrder("member3", "member4");
+        assertThat(memberJpaRepository.search(teamB))
+                .containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchByBuilder(teamB));
+    }
+
+    @Test
+    public void pagingAndCountShareBindings() {
+        Page<MemberTeamDto> page = memberRepository.searchPaging(condition(null, 20), PageRequest.of(0, 2));
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        assertThat(memberRepository.searchCount(condition("teamA", 20))).isEqualTo(1);
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        return condition;
+    }
+
+    private double hits() {
+        return meterRegistry.get("member.search.jpql.cache").tag("result", "hit").counter().count();
+    }
+}
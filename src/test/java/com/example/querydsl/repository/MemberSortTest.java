@@ -0,0 +1,109 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberSortTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 20, teamB));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 30));
+        em.persist(new Member("member5", 20, teamB));
+    }
+
+    @Test
+    public void sortsByIndexedKeysWithMemberIdTieBreaker() {
+        Page<MemberTeamDto> page = memberRepository.searchPaging(new MemberSearchCondition(),
+                PageRequest.of(0, 4, Sort.by(Sort.Order.desc("age"))));
+
+        assertThat(page.getContent()).extracting("username")
+                .containsExactly("member4", "member1", "member3", "member5");
+        assertThat(page.getTotalElements()).isEqualTo(5);
+
+        List<MemberTeamDto> ages = memberRepository.searchContent(new MemberSearchCondition(),
+                PageRequest.of(0, 5, Sort.by("age")));
+        assertThat(ages).isSortedAccordingTo(MemberSort.of(Sort.by("age")).comparator());
+    }
+
+    @Test
+    public void missingTeamSortsLastInBothDirections() {
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            List<MemberTeamDto> content = memberRepository.searchContent(new MemberSearchCondition(),
+                    PageRequest.of(0, 5, Sort.by(direction, "teamName")));
+
+            assertThat(content).last().extracting("username").isEqualTo("member4");
+            assertThat(content).isSortedAccordingTo(MemberSort.of(Sort.by(direction, "teamName")).comparator());
+        }
+    }
+
+    @Test
+    public void rejectsSortsWithoutIndex() {
+        assertThatThrownBy(() -> memberRepository.searchPaging(new MemberSearchCondition(),
+                PageRequest.of(0, 5, Sort.by("team.name"))))
+                .isInstanceOf(UnsupportedSortException.class)
+                .hasMessageContaining("memberId, username, age, teamId, teamName");
+        assertThatThrownBy(() -> MemberSort.of(Sort.by(Sort.Order.asc("username").ignoreCase())))
+                .isInstanceOf(UnsupportedSortException.class);
+    }
+
+    @Test
+    public void controllerAnswersBadRequestForUnindexedSort() throws Exception {
+        mockMvc.perform(get("/v2/members").param("sort", "age,desc")).andExpect(status().isOk());
+        mockMvc.perform(get("/v2/members").param("sort", "createdDate,desc")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shardMergeFollowsRequestedOrder() {
+        MemberSort sort = MemberSort.of(Sort.by(Sort.Order.asc("username")));
+        List<List<MemberTeamDto>> shards = new ArrayList<>();
+        shards.add(List.of(dto(3L, "a"), dto(1L, "c")));
+        shards.add(List.of(dto(2L, "a"), dto(4L, "b")));
+
+        assertThat(ShardedMemberRepository.merge(shards, sort.comparator(), 3))
+                .extracting("memberId").containsExactly(2L, 3L, 4L);
+    }
+
+    private static MemberTeamDto dto(Long memberId, String username) {
+        return new MemberTeamDto(memberId, username, 0, null, null);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberRankDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class MemberSqlRepositoryTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 40, teamB));
+
+        // querydsl-sql 은 영속성 컨텍스트를 거치지 않으므로 먼저 DB 에 반영한다.
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void findOldestPerTeam() {
+        List<MemberRankDto> result = memberSqlRepository.findOldestPerTeam(1);
+
+        assertThat(result).extracting("teamName", "username", "age", "rank")
+                .containsExactly(
+                        tuple("teamA", "member2", 20, 1L),
+                        tuple("teamB", "member4", 40, 1L));
+    }
+
+    @Test
+    public void findOldestTwoPerTeam() {
+        List<MemberRankDto> result = memberSqlRepository.findOldestPerTeam(2);
+
+        assertThat(result).extracting("username")
+                .containsExactly("member2", "member1", "member4", "member5");
+    }
+
+    @Test
+    public void findAgeRankWithinTeam() {
+        List<MemberRankDto> result = memberSqlRepository.findAgeRankWithinTeam();
+
+        assertThat(result).extracting("username", "rank")
+                .containsExactly(
+                        tuple("member2", 1L),
+                        tuple("member1", 2L),
+                        tuple("member4", 1L),
+                        tuple("member5", 1L),
+                        tuple("member3", 3L));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class MemberSqlSearchRepositoryTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberSqlSearchRepository memberSqlSearchRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+    }
+
+    @Test
+    public void searchMatchesJpaEngine() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(35);
+        condition.setAgeLoe(40);
+        condition.setTeamName("teamB");
+
+        List<MemberTeamDto> result = memberSqlSearchRepository.search(condition);
+
+        assertThat(result).extracting("username").containsExactly("member4");
+        assertThat(result).isEqualTo(memberRepository.search(condition));
+    }
+
+    @Test
+    public void searchWithoutConditionKeepsMembersWithoutTeam() {
+        List<MemberTeamDto> result = memberSqlSearchRepository.search(new MemberSearchCondition());
+
+        assertThat(result).hasSize(5);
+        assertThat(result).filteredOn(dto -> dto.getTeamId() == null).extracting("username").containsExactly("member5");
+    }
+
+    @Test
+    public void searchPaging() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        Page<MemberTeamDto> result = memberSqlSearchRepository.searchPaging(condition, PageRequest.of(0, 2));
+
+        assertThat(result.getContent()).extracting("username").containsExactly("member2", "member3");
+        assertThat(result.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    public void searchPagingCountWithTeamFilter() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        Page<MemberTeamDto> result = memberSqlSearchRepository.searchPaging(condition, PageRequest.of(1, 1));
+
+        assertThat(result.getContent()).extracting("username").containsExactly("member2");
+        assertThat(result.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    public void searchAfterContinuesFromLastMemberId() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        List<MemberTeamDto> first = memberSqlSearchRepository.searchAfter(condition, null, 2);
+        List<MemberTeamDto> second = memberSqlSearchRepository.searchAfter(condition, first.get(1).getMemberId(), 2);
+
+        assertThat(first).extracting("username").containsExactly("member2", "member3");
+        assertThat(second).extracting("username").containsExactly("member4", "member5");
+        assertThat(memberRepository.searchAfter(condition, first.get(1).getMemberId(), 2)).isEqualTo(second);
+    }
+}
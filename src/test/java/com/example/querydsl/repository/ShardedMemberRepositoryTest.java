@@ -0,0 +1,300 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.search.UsernameIndex;
+import com.example.querydsl.support.DatasetFixture;
+import com.example.querydsl.writebehind.MemberWriteBehindService;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.*;
+
+// 컨텍스트가 따로 뜨므로 기본 DB 도 다른 테스트와 겹치지 않게 분리한다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:querydsl-sharded;DB_CLOSE_DELAY=-1",
+        "querydsl.search.engine=sharded",
+        "querydsl.sharding.shards[0].url=jdbc:h2:mem:member-shard-test-0;DB_CLOSE_DELAY=-1",
+        "querydsl.sharding.shards[1].url=jdbc:h2:mem:member-shard-test-1;DB_CLOSE_DELAY=-1",
+        "querydsl.sharding.shards[2].url=jdbc:h2:mem:member-shard-test-2;DB_CLOSE_DELAY=-1",
+        "querydsl.sharding.max-offset=8"
+})
+class ShardedMemberRepositoryTest {
+
+    @Autowired
+    ShardedMemberRepository shardedMemberRepository;
+
+    @Autowired
+    MemberShards memberShards;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberWriteBehindService memberWriteBehindService;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    UsernameIndex usernameIndex;
+
+    @BeforeEach
+    public void before() {
+        for (int i = 0; i < memberShards.size(); i++) {
+            memberShards.shard(i).update("delete from member");
+            memberShards.shard(i).update("delete from team");
+        }
+
+        shardedMemberRepository.saveTeam(1L, "teamA");
+        shardedMemberRepository.saveTeam(2L, "teamB");
+        shardedMemberRepository.saveTeam(3L, "teamC");
+
+        // 팀 1, 2, 3 은 서로 다른 샤드에 들어간다.
+        for (long id = 1; id <= 12; id++) {
+            shardedMemberRepository.saveMember(id, "member" + id, (int) id * 10, id % 3 + 1);
+        }
+        shardedMemberRepository.saveMember(13L, "member13", 130, null);
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void scatterGatherMergesInMemberIdOrder() {
+        List<MemberTeamDto> result = shardedMemberRepository.search(new MemberSearchCondition());
+
+        assertThat(result).extracting("memberId")
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L);
+        assertThat(result).filteredOn(dto -> dto.getTeamId() == null).extracting("username").containsExactly("member13");
+    }
+
+    @Test
+    public void teamNameRoutesToSingleShard() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(50);
+
+        assertThat(shardedMemberRepository.shardsFor(condition)).containsExactly(memberShards.shardOf(2L));
+        assertThat(shardedMemberRepository.search(condition)).extracting("username")
+                .containsExactly("member7", "member10");
+
+        condition.setTeamName("noSuchTeam");
+        assertThat(shardedMemberRepository.shardsFor(condition)).isEmpty();
+        assertThat(shardedMemberRepository.search(condition)).isEmpty();
+    }
+
+    @Test
+    public void searchPagingMergesPagesAndSumsCounts() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(30);
+
+        Page<MemberTeamDto> result = shardedMemberRepository.searchPaging(condition, PageRequest.of(1, 4));
+
+        assertThat(result.getContent()).extracting("memberId").containsExactly(7L, 8L, 9L, 10L);
+        assertThat(result.getTotalElements()).isEqualTo(11);
+    }
+
+    @Test
+    public void deepOffsetIsRejected() {
+        // 테스트 설정의 max-offset 은 8 이다.
+        assertThat(shardedMemberRepository.searchContent(new MemberSearchCondition(), PageRequest.of(2, 4)))
+                .extracting("memberId").containsExactly(9L, 10L, 11L, 12L);
+        assertThatThrownBy(() -> shardedMemberRepository.searchContent(new MemberSearchCondition(), PageRequest.of(3, 4)))
+                .isInstanceOf(DeepOffsetException.class)
+                .hasMessageContaining("/v2/members/after");
+    }
+
+    @Test
+    public void teamNameRoutesFollowTeamChanges() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamD");
+        assertThat(shardedMemberRepository.shardsFor(condition)).isEmpty();
+
+        shardedMemberRepository.saveTeam(4L, "teamD");
+        assertThat(shardedMemberRepository.shardsFor(condition)).containsExactly(memberShards.shardOf(4L));
+
+        shardedMemberRepository.deleteTeam(4L);
+        assertThat(shardedMemberRepository.shardsFor(condition)).isEmpty();
+    }
+
+    @Test
+    public void searchAfterWalksEveryMemberOnce() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        List<Long> seen = new ArrayList<>();
+
+        List<MemberTeamDto> page = shardedMemberRepository.searchAfter(condition, null, 5);
+        while (!page.isEmpty()) {
+            page.forEach(dto -> seen.add(dto.getMemberId()));
+            page = shardedMemberRepository.searchAfter(condition, page.get(page.size() - 1).getMemberId(), 5);
+        }
+
+        assertThat(seen).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L);
+    }
+
+    /**
+     * 샤드에 직접 넣은 회원은 색인에 없으므로 색인에 넣은 회원만 후보가 된다. 후보도 like 로 다시 거른다.
+     */
+    @Test
+    public void usernameSearchUsesIndexCandidates() {
+        usernameIndex.put(4L, "member4");
+        usernameIndex.put(11L, "member11");
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("member1");
+        assertThat(usernameIndex.isReady()).isTrue();
+        assertThat(shardedMemberRepository.search(condition)).extracting("username").containsExactly("member11");
+        assertThat(shardedMemberRepository.searchCount(condition)).isEqualTo(1);
+
+        condition.setUsernameContains("nobody");
+        assertThat(shardedMemberRepository.search(condition)).isEmpty();
+        assertThat(shardedMemberRepository.searchCount(condition)).isZero();
+    }
+
+    @Test
+    public void saveMemberMovesMemberToNewTeamShard() {
+        shardedMemberRepository.saveMember(1L, "member1", 10, 3L);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+        List<MemberTeamDto> result = shardedMemberRepository.search(condition);
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getTeamName()).isEqualTo("teamC");
+    }
+
+    @Test
+    public void memberRepositoryDelegatesToShards() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        assertThat(memberRepository.search(condition)).isEqualTo(shardedMemberRepository.search(condition));
+        assertThat(memberRepository.searchPaging(condition, PageRequest.of(0, 2)).getTotalElements()).isEqualTo(4);
+    }
+
+    /**
+     * 엔티티로 쓴 팀은 모든 샤드에, 회원은 팀 해시로 정한 샤드 한 곳에만 커밋 뒤에 들어간다.
+     */
+    @Test
+    public void entityWritesAreRoutedAfterCommit() {
+        Long[] ids = transactionTemplate.execute(status -> {
+            Team teamD = new Team("teamD");
+            Team teamH = new Team("teamH");
+            em.persist(teamD);
+            em.persist(teamH);
+            Member member = new Member("memberD", 40, teamD);
+            em.persist(member);
+            em.flush();
+            // 커밋 전에는 샤드에 없다.
+            assertThat(rowsIn("team", "teamD")).containsOnly(0);
+            return new Long[]{teamD.getId(), teamH.getId(), member.getId()};
+        });
+        Long memberId = ids[2];
+        // 연속된 id 는 서로 다른 샤드에 들어간다.
+        assertThat(memberShards.shardOf(ids[0])).isNotEqualTo(memberShards.shardOf(ids[1]));
+
+        assertThat(rowsIn("team", "teamD")).containsOnly(1);
+        assertThat(memberShardsOf(memberId)).containsExactly(memberShards.shardOf(ids[0]));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamD");
+        assertThat(shardedMemberRepository.search(condition)).extracting("memberId").containsExactly(memberId);
+
+        transactionTemplate.executeWithoutResult(status -> em.find(Member.class, memberId).changeTeam(em.find(Team.class, ids[1])));
+        assertThat(memberShardsOf(memberId)).containsExactly(memberShards.shardOf(ids[1]));
+
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, memberId)));
+        assertThat(memberShardsOf(memberId)).isEmpty();
+    }
+
+    @Test
+    public void rolledBackWritesDoNotReachShards() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Team("teamE"));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(rowsIn("team", "teamE")).containsOnly(0);
+    }
+
+    @Test
+    public void writeBehindUpdatesReachShards() throws Exception {
+        Long memberId = transactionTemplate.execute(status -> {
+            Member member = new Member("memberF", 10);
+            em.persist(member);
+            return member.getId();
+        });
+
+        memberWriteBehindService.changeAge(memberId, 77);
+        memberWriteBehindService.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("memberF");
+        assertThat(shardedMemberRepository.search(condition)).extracting("age").containsExactly(77);
+    }
+
+    /**
+     * 벌크 연산은 바뀐 행을 모르므로 커밋 뒤에 기본 DB 에서 다시 읽어 샤드를 맞춘다.
+     */
+    @Test
+    public void bulkWritesResyncShardsAfterCommit() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamG = new Team("teamG");
+            em.persist(teamG);
+            em.persist(new Member("memberG", 10, teamG));
+        });
+
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .execute());
+        shardedMemberRepository.awaitResync(10, TimeUnit.SECONDS);
+
+        // resync 는 기본 DB 가 가진 행으로 샤드를 다시 채우므로 샤드에만 넣었던 회원은 사라진다.
+        assertThat(shardedMemberRepository.search(new MemberSearchCondition()))
+                .extracting("username", "age")
+                .containsExactly(tuple("memberG", 11));
+    }
+
+    private List<Integer> rowsIn(String table, String name) {
+        return memberShards.all().stream()
+                .map(index -> memberShards.shard(index).queryForObject(
+                        "select count(*) from " + table + " where name = ?", Integer.class, name))
+                .toList();
+    }
+
+    private List<Integer> memberShardsOf(Long memberId) {
+        return memberShards.all().stream()
+                .filter(index -> memberShards.shard(index).queryForObject(
+                        "select count(*) from member where member_id = ?", Integer.class, memberId) > 0)
+                .toList();
+    }
+}
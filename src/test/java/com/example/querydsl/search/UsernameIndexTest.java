@@ -0,0 +1,253 @@
+package com.example.querydsl.search;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberRepository;
+import com.example.querydsl.repository.MemberSqlSearchRepository;
+import com.example.querydsl.support.DatasetFixture;
+import com.example.querydsl.writebehind.MemberWriteBehindService;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 색인은 커밋된 변경만 반영하므로 롤백 테스트가 아니라 트랜잭션을 직접 나눠서 검증한다.
+ */
+@SpringBootTest
+class UsernameIndexTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    UsernameIndex usernameIndex;
+
+    @Autowired
+    UsernameIndexLoader usernameIndexLoader;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberSqlSearchRepository memberSqlSearchRepository;
+
+    @Autowired
+    MemberWriteBehindService memberWriteBehindService;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    Long bobId;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+
+            em.persist(new Member("alice", 10, teamA));
+            em.persist(new Member("Malik", 20, teamA));
+            em.persist(new Member("alicia", 30));
+            Member bob = new Member("bob", 40, teamA);
+            em.persist(bob);
+            bobId = bob.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void containsIsResolvedThroughIndex() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("ALI");
+
+        assertThat(usernameIndex.isReady()).isTrue();
+        assertThat(usernameIndex.find("ALI", null)).hasSize(3);
+        assertThat(memberRepository.search(condition)).extracting(MemberTeamDto::getUsername)
+                .containsExactlyInAnyOrder("alice", "Malik", "alicia");
+    }
+
+    @Test
+    public void prefixAndContainsCombine() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("ali");
+        assertThat(memberRepository.search(condition)).extracting(MemberTeamDto::getUsername)
+                .containsExactlyInAnyOrder("alice", "alicia");
+
+        condition.setUsernameContains("cia");
+        condition.setTeamName("teamA");
+        assertThat(memberRepository.search(condition)).isEmpty();
+    }
+
+    @Test
+    public void shortFragmentScansIndexedValues() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("b");
+
+        assertThat(memberRepository.search(condition)).extracting(MemberTeamDto::getUsername).containsExactly("bob");
+    }
+
+    /**
+     * 색인에 맞는 회원이 없으면 목록과 카운트 모두 쿼리를 실행하지 않는다.
+     */
+    @Test
+    public void noIndexedMatchSkipsTheDatabase() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("zzz");
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        long statements = statistics.getPrepareStatementCount();
+
+        assertThat(usernameIndex.find("zzz", null)).isEmpty();
+        assertThat(memberRepository.search(condition)).isEmpty();
+        assertThat(memberRepository.searchCount(condition)).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+    }
+
+    @Test
+    public void sqlEngineMatchesWithLike() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("li");
+        condition.setAgeLoe(25);
+
+        List<MemberTeamDto> sql = memberSqlSearchRepository.search(condition);
+
+        assertThat(sql).extracting(MemberTeamDto::getUsername).containsExactlyInAnyOrder("alice", "Malik");
+        assertThat(sql).containsExactlyInAnyOrderElementsOf(memberRepository.search(condition));
+    }
+
+    /**
+     * SQL 엔진도 색인을 먼저 본다. 색인에서 빠진 회원은 DB 에 있어도 나오지 않으므로 DB 에 가지 않았다는 뜻이다.
+     */
+    @Test
+    public void sqlEngineSkipsTheDatabaseWithoutIndexedMatch() {
+        usernameIndex.remove(bobId);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("bob");
+        assertThat(memberSqlSearchRepository.search(condition)).isEmpty();
+        assertThat(memberSqlSearchRepository.searchCount(condition)).isZero();
+        assertThat(memberSqlSearchRepository.searchAfter(condition, null, 10)).isEmpty();
+    }
+
+    @Test
+    public void committedChangesAreIndexedAndRollbacksAreNot() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("alistair", 50));
+            status.setRollbackOnly();
+        });
+        assertThat(usernameIndex.find("alis", null)).isEmpty();
+
+        memberWriteBehindService.changeUsername(bobId, "bobbyali");
+        memberWriteBehindService.flush();
+        transactionTemplate.executeWithoutResult(status ->
+                em.remove(em.createQuery("SELECT m FROM Member m WHERE m.username = 'alice'", Member.class).getSingleResult()));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("ali");
+        assertThat(memberRepository.search(condition)).extracting(MemberTeamDto::getUsername)
+                .containsExactlyInAnyOrder("Malik", "alicia", "bobbyali");
+    }
+
+    /**
+     * 색인이 실제 username 과 어긋나도 like 가 다시 거르므로 조건에 맞지 않는 회원은 나오지 않는다.
+     */
+    @Test
+    public void staleIndexOnlyNarrows() {
+        usernameIndex.put(bobId, "zzzali");
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("zzz");
+        assertThat(usernameIndex.find("zzz", null)).containsExactly(bobId);
+        assertThat(memberRepository.search(condition)).isEmpty();
+        assertThat(memberSqlSearchRepository.search(condition)).isEmpty();
+
+        condition.setUsernameContains(null);
+        condition.setUsernamePrefix("zzz");
+        assertThat(memberRepository.search(condition)).isEmpty();
+    }
+
+    @Test
+    public void bulkUsernameUpdateRebuildsAfterCommit() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .update(member)
+                .set(member.username, "renamed")
+                .where(member.age.goe(30))
+                .execute());
+
+        // 다시 만들어지기 전이라도 옛 이름으로는 찾히지 않는다.
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("alicia");
+        assertThat(memberRepository.search(condition)).isEmpty();
+
+        usernameIndexLoader.awaitRebuild(10, TimeUnit.SECONDS);
+
+        condition.setUsernameContains("renamed");
+        assertThat(usernameIndex.find("renamed", null)).hasSize(2);
+        assertThat(memberRepository.search(condition)).extracting(MemberTeamDto::getUsername)
+                .containsExactly("renamed", "renamed");
+    }
+
+    /**
+     * 엔티티 flush 와 벌크 삭제는 색인을 다시 만들지 않는다. 다시 만들면 색인에만 넣어둔 표시가 사라진다.
+     */
+    @Test
+    public void entityWritesAndBulkDeletesDoNotRebuild() throws Exception {
+        usernameIndex.put(-1L, "marker");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("carol", 50));
+            em.find(Member.class, bobId).changeAge(41);
+            em.remove(em.createQuery("SELECT m FROM Member m WHERE m.username = 'alice'", Member.class).getSingleResult());
+        });
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .delete(member)
+                .where(member.username.eq("carol"))
+                .execute());
+        usernameIndexLoader.awaitRebuild(10, TimeUnit.SECONDS);
+
+        assertThat(usernameIndex.find("marker", null)).containsExactly(-1L);
+    }
+
+    @Test
+    public void tooManyMatchesFallBack() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1L, "member1");
+        index.put(2L, "member2");
+        index.put(3L, "other");
+
+        assertThat(index.find("member", null, 10)).containsExactly(1L, 2L);
+        assertThat(index.find("member", null, 1)).isNull();
+
+        index.remove(2L);
+        assertThat(index.find("member", null, 1)).containsExactly(1L);
+    }
+}
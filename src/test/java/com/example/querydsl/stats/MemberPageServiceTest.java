@@ -0,0 +1,177 @@
+package com.example.querydsl.stats;
+
+import com.example.querydsl.config.CountEstimateProperties;
+import com.example.querydsl.dto.CountMode;
+import com.example.querydsl.dto.EstimatedPage;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberRepository;
+import com.example.querydsl.search.UsernameIndex;
+import com.example.querydsl.support.DatasetFixture;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * team_stats 는 커밋 직전에 반영되므로 트랜잭션을 직접 나눠서 검증한다.
+ */
+@SpringBootTest
+class MemberPageServiceTest {
+
+    static final int MEMBERS = 400;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberPageService memberPageService;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamStatsService teamStatsService;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    UsernameIndex usernameIndex;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+        // stale 인 팀 집계를 다시 계산해둔다.
+        teamStatsService.findAll();
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void exactModeRunsCountQuery() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(50);
+
+        Page<MemberTeamDto> page = memberPageService.searchPaging(condition, PageRequest.of(0, 10), CountMode.EXACT);
+
+        assertThat(page).isNotInstanceOf(EstimatedPage.class);
+        assertThat(page.getTotalElements()).isEqualTo(200);
+    }
+
+    @Test
+    public void teamOnlyConditionUsesTeamStats() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        EstimatedPage<MemberTeamDto> page = (EstimatedPage<MemberTeamDto>)
+                memberPageService.searchPaging(condition, PageRequest.of(0, 10), CountMode.APPROXIMATE);
+
+        assertThat(page.getCountMethod()).isEqualTo("team-stats");
+        assertThat(page.isExactTotal()).isTrue();
+        assertThat(page.getTotalElements()).isEqualTo(200);
+        assertThat(page.getContent()).hasSize(10);
+    }
+
+    @Test
+    public void smallIdRangeFallsBackToExactCount() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(90);
+
+        EstimatedPage<MemberTeamDto> page = (EstimatedPage<MemberTeamDto>)
+                memberPageService.searchPaging(condition, PageRequest.of(0, 10), CountMode.APPROXIMATE);
+
+        assertThat(page.getCountMethod()).isEqualTo("count");
+        assertThat(page.getTotalElements()).isEqualTo(40);
+    }
+
+    @Test
+    public void lastPageNeedsNoCount() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(90);
+
+        EstimatedPage<MemberTeamDto> page = (EstimatedPage<MemberTeamDto>)
+                memberPageService.searchPaging(condition, PageRequest.of(3, 12), CountMode.APPROXIMATE);
+
+        assertThat(page.getCountMethod()).isEqualTo("page");
+        assertThat(page.getContent()).hasSize(4);
+        assertThat(page.getTotalElements()).isEqualTo(40);
+    }
+
+    @Test
+    public void sampledEstimateIsWithinErrorBound() {
+        CountEstimateProperties properties = new CountEstimateProperties();
+        properties.setSampleSize(80);
+        properties.setWindows(8);
+        MemberCountEstimator estimator = new MemberCountEstimator(queryFactory, usernameIndex, properties);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeLoe(49);
+
+        MemberCountEstimator.Estimate estimate = estimator.estimate(condition).orElseThrow();
+
+        assertThat(estimate.exact()).isFalse();
+        assertThat(estimate.method()).isEqualTo("id-sample");
+        assertThat(estimate.errorBound()).isPositive();
+        // errorBound 는 95% 범위라서 3배면 사실상 항상 들어온다.
+        assertThat(estimate.total()).isBetween(200 - 3 * estimate.errorBound(), 200 + 3 * estimate.errorBound());
+    }
+
+    /**
+     * id 범위(404)가 windows(9)로 나누어 떨어지지 않아도 끝에 남는 id 가 표본에 들어갈 수 있어야 한다.
+     * 층 너비 44 * 9 = 396 이므로 맨 뒤 8개 id 는 마지막 층이 맡지 않으면 절대 세어지지 않는다.
+     */
+    @Test
+    public void trailingIdsOfUnevenRangeAreSampled() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 4; i++) {
+                em.persist(new Member("tail" + i, 200));
+            }
+        });
+        CountEstimateProperties properties = new CountEstimateProperties();
+        properties.setSampleSize(9 * 43);
+        properties.setWindows(9);
+        MemberCountEstimator estimator = new MemberCountEstimator(queryFactory, usernameIndex, properties);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(200);
+
+        // 한 번에 맞을 확률은 0.4 라서 30 번이면 모두 빗나갈 일은 사실상 없다.
+        long sampledTail = IntStream.range(0, 30)
+                .mapToObj(i -> estimator.estimate(condition).orElseThrow())
+                .filter(estimate -> estimate.total() > 0)
+                .count();
+
+        assertThat(sampledTail).isPositive();
+    }
+}
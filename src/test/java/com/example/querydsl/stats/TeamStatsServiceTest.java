@@ -0,0 +1,185 @@
+package com.example.querydsl.stats;
+
+import com.example.querydsl.dto.TeamStatsDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.entity.TeamStats;
+import com.example.querydsl.support.DatasetFixture;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 집계는 커밋 직전에 반영되므로 트랜잭션을 직접 나눠서 검증한다.
+ */
+@SpringBootTest
+class TeamStatsServiceTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    TeamStatsService teamStatsService;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    Long teamAId;
+    Long teamBId;
+    Long member1Id;
+    Long member4Id;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            Member member1 = new Member("member1", 10, teamA);
+            Member member2 = new Member("member2", 20, teamA);
+            Member member3 = new Member("member3", 30, teamB);
+            Member member4 = new Member("member4", 40, teamB);
+            em.persist(member1);
+            em.persist(member2);
+            em.persist(member3);
+            em.persist(member4);
+
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            member1Id = member1.getId();
+            member4Id = member4.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void statsAreMaintainedOnPersist() {
+        TeamStats teamA = transactionTemplate.execute(status -> em.find(TeamStats.class, teamAId));
+
+        assertThat(teamA.getMemberCount()).isEqualTo(2);
+        assertThat(teamA.getAgeSum()).isEqualTo(30);
+        assertThat(teamA.getAgeMin()).isEqualTo(10);
+        assertThat(teamA.getAgeMax()).isEqualTo(20);
+        assertThat(teamA.isStale()).isFalse();
+
+        assertMatchesGroupBy(teamStatsService.findAll());
+    }
+
+    @Test
+    public void statsFollowTeamChangeAgeChangeAndDelete() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member1 = em.find(Member.class, member1Id);
+            member1.changeTeam(em.find(Team.class, teamBId));
+
+            em.remove(em.find(Member.class, member4Id));
+            em.persist(new Member("member5", 50, em.find(Team.class, teamAId)));
+        });
+
+        TeamStats teamB = transactionTemplate.execute(status -> em.find(TeamStats.class, teamBId));
+        // 최대값(40)이 빠져나갔으므로 다시 계산해야 한다.
+        assertThat(teamB.isStale()).isTrue();
+
+        List<TeamStatsDto> result = teamStatsService.findAll();
+
+        assertThat(result).extracting("teamName", "memberCount", "ageSum", "ageMin", "ageMax")
+                .containsExactly(
+                        tuple("teamA", 2L, 70L, 20, 50),
+                        tuple("teamB", 2L, 40L, 10, 30));
+        assertMatchesGroupBy(result);
+    }
+
+    @Test
+    public void invalidateAllAfterBulkUpdate() {
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .execute());
+        teamStatsService.invalidateAll();
+
+        List<TeamStatsDto> result = teamStatsService.findAll();
+
+        assertThat(result).extracting("teamName", "ageSum").containsExactly(tuple("teamA", 32L), tuple("teamB", 72L));
+        assertMatchesGroupBy(result);
+    }
+
+    /**
+     * 행이 없는 팀에 두 트랜잭션이 동시에 첫 회원을 넣으면 둘 다 team_stats 행을 넣으려 한다.
+     * 늦은 쪽도 사용자 트랜잭션이 실패하지 않고 자기 변화량을 반영해야 한다.
+     */
+    @Test
+    public void concurrentFirstMembersOfTeamWithoutRowBothCommit() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> em.createQuery("DELETE FROM TeamStats s WHERE s.teamId = :teamId")
+                .setParameter("teamId", teamAId)
+                .executeUpdate());
+
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> addMemberAfterBarrier("member5", 50, barrier));
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> addMemberAfterBarrier("member6", 60, barrier));
+        CompletableFuture.allOf(first, second).get(30, TimeUnit.SECONDS);
+
+        List<TeamStatsDto> result = teamStatsService.findAll();
+
+        assertThat(result).extracting("teamName", "memberCount").containsExactly(tuple("teamA", 4L), tuple("teamB", 2L));
+        assertMatchesGroupBy(result);
+    }
+
+    private void addMemberAfterBarrier(String username, int age, CyclicBarrier barrier) {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member(username, age, em.find(Team.class, teamAId)));
+            em.flush();
+            try {
+                // 두 트랜잭션 모두 집계를 반영하기 직전(커밋 직전)까지 와서 함께 커밋한다.
+                barrier.await(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void assertMatchesGroupBy(List<TeamStatsDto> stats) {
+        List<Tuple> expected = transactionTemplate.execute(status -> queryFactory
+                .select(team.name, member.count(), member.age.min(), member.age.max())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.name)
+                .orderBy(team.name.asc())
+                .fetch());
+
+        assertThat(stats).hasSize(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Tuple tuple = expected.get(i);
+            assertThat(stats.get(i).getTeamName()).isEqualTo(tuple.get(team.name));
+            assertThat(stats.get(i).getMemberCount()).isEqualTo(tuple.get(member.count()));
+            assertThat(stats.get(i).getAgeMin()).isEqualTo(tuple.get(member.age.min()));
+            assertThat(stats.get(i).getAgeMax()).isEqualTo(tuple.get(member.age.max()));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.querydsl.stream;
+
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.MemberJpaRepository;
+import com.example.querydsl.support.DatasetFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * 실제 Tomcat 의 비동기 타임아웃 기본값을 짧게 줄여두고, 그보다 오래 걸리는 여러 배치짜리 스트림이
+ * spring.mvc.async.request-timeout 덕분에 끝까지 나가는지 확인한다.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:member-stream;DB_CLOSE_DELAY=-1")
+class MemberEventStreamTimeoutTest {
+
+    static final long CONTAINER_ASYNC_TIMEOUT_MILLIS = 200;
+    static final long ROW_DELAY_MILLIS = 500;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @SpyBean
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void before() {
+        datasetFixture.restore();
+        // 커서에서 한 행을 읽을 때마다 늦춰서 스트림 전체가 컨테이너 기본 타임아웃보다 오래 걸리게 한다.
+        doAnswer(invocation -> ((Stream<MemberTeamDto>) invocation.callRealMethod()).peek(row -> sleep()))
+                .when(memberJpaRepository).stream(any(), any(), anyInt());
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void multiBatchStreamOutlivesContainerDefaultTimeout() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/members/stream?batchSize=2")).build();
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMillis).isGreaterThan(CONTAINER_ASYNC_TIMEOUT_MILLIS * 5);
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body().split("event: members")).hasSize(3);
+        assertThat(response.body()).contains("member1", "member4", "event: end", "\"count\":4");
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(ROW_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @TestConfiguration
+    static class ShortContainerAsyncTimeout {
+
+        @Bean
+        WebServerFactoryCustomizer<TomcatServletWebServerFactory> shortAsyncTimeout() {
+            return factory -> factory.addConnectorCustomizers(connector -> connector.setAsyncTimeout(CONTAINER_ASYNC_TIMEOUT_MILLIS));
+        }
+    }
+}
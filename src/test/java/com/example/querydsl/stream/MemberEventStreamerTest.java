@@ -0,0 +1,108 @@
+package com.example.querydsl.stream;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberJpaRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class MemberEventStreamerTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberEventStreamer memberEventStreamer;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    Team teamA;
+
+    @BeforeEach
+    public void before() {
+        teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, i * 10, i % 2 == 0 ? teamA : teamB));
+        }
+    }
+
+    @Test
+    public void streamsRowsInBatchesThenEnd() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long sent = memberEventStreamer.stream(new MemberSearchCondition(), null, 2, out);
+
+        List<String> events = events(out);
+        assertThat(sent).isEqualTo(5);
+        assertThat(events).hasSize(4);
+        assertThat(events.subList(0, 3)).allMatch(event -> event.contains("event: members"));
+        assertThat(events.get(0)).contains("\"username\":\"member0\"", "\"username\":\"member1\"");
+        assertThat(events.get(2)).contains("\"username\":\"member4\"").doesNotContain("member3");
+        assertThat(events.get(3)).contains("event: end", "\"count\":5");
+    }
+
+    @Test
+    public void resumesAfterLastEventId() {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        memberEventStreamer.stream(new MemberSearchCondition(), null, 2, first);
+        String firstEvent = events(first).get(0);
+        Long lastEventId = Long.valueOf(firstEvent.substring("id: ".length(), firstEvent.indexOf('\n')));
+
+        ByteArrayOutputStream resumed = new ByteArrayOutputStream();
+        long sent = memberEventStreamer.stream(new MemberSearchCondition(), lastEventId, 10, resumed);
+
+        assertThat(sent).isEqualTo(3);
+        assertThat(events(resumed).get(0)).contains("member2", "member3", "member4").doesNotContain("member1");
+    }
+
+    @Test
+    public void clientDisconnectStopsStreaming() {
+        OutputStream disconnected = new OutputStream() {
+            int writes;
+
+            @Override
+            public void write(int b) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (++writes > 1) {
+                    throw new IOException("Broken pipe");
+                }
+            }
+        };
+
+        long sent = memberEventStreamer.stream(new MemberSearchCondition(), null, 2, disconnected);
+
+        assertThat(sent).isEqualTo(2);
+    }
+
+    private List<String> events(ByteArrayOutputStream out) {
+        return Arrays.stream(out.toString(StandardCharsets.UTF_8).split("\n\n"))
+                .filter(event -> !event.isBlank())
+                .toList();
+    }
+}
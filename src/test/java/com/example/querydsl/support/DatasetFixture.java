@@ -0,0 +1,159 @@
+package com.example.querydsl.support;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.search.UsernameIndexLoader;
+import com.example.querydsl.version.DataVersion;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 표준 테스트 데이터를 JPA 로 한 번만 만들고(Team/Member 이벤트, 시퀀스, team_stats 까지 실제와 동일하게)
+ * 같은 DB 안의 fixture 테이블로 스냅샷을 떠둔다. 복원은 DB 내부 INSERT ... SELECT 라서
+ * 엔티티를 다시 만들고 영속화하는 것보다 훨씬 싸고, 테스트 수만큼 반복되지도 않는다.
+ * <p>
+ * 복원과 삭제는 행만이 아니라 행에 묶인 상태도 스냅샷 시점으로 되돌린다. 시퀀스(와 Hibernate 가 메모리에 받아둔 id 구간),
+ * in-process UsernameIndex, DataVersion 이다. 그래서 복원 뒤에 넣는 행은 항상 같은 id 를 받는다.
+ * 같은 JVM 의 캐시된 컨텍스트들은 메모리 DB 를 함께 쓰므로 스냅샷 테이블 이름에 컨텍스트(이 빈)마다 다른 번호를 붙인다.
+ */
+@Component
+public class DatasetFixture {
+
+    /**
+     * 외래키 순서. 복원은 앞에서부터, 삭제는 뒤에서부터 한다.
+     */
+    private static final List<String> TABLES = List.of("team", "team_stats", "member");
+    private static final AtomicInteger CONTEXTS = new AtomicInteger();
+
+    @PersistenceContext
+    EntityManager em;
+    private final EntityManagerFactory emf;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UsernameIndexLoader usernameIndexLoader;
+    private final DataVersion dataVersion;
+
+    private final String snapshotPrefix = "fixture_" + CONTEXTS.incrementAndGet() + "_";
+    private final Map<String, Long> sequences = new LinkedHashMap<>();
+    private boolean snapshotTaken;
+
+    public DatasetFixture(EntityManagerFactory emf, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                          UsernameIndexLoader usernameIndexLoader, DataVersion dataVersion) {
+        this.emf = emf;
+        this.jdbcTemplate = jdbcTemplate;
+        // 테스트가 연 트랜잭션(롤백 예정)과 상관없이 항상 커밋되도록 별도 트랜잭션에서 실행한다.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.usernameIndexLoader = usernameIndexLoader;
+        this.dataVersion = dataVersion;
+    }
+
+    public synchronized void restore() {
+        if (!snapshotTaken) {
+            clear();
+            transactionTemplate.executeWithoutResult(status -> seed());
+            transactionTemplate.executeWithoutResult(status -> snapshot());
+            snapshotTaken = true;
+        } else {
+            transactionTemplate.executeWithoutResult(status -> {
+                deleteAll();
+                for (String table : TABLES) {
+                    jdbcTemplate.update("insert into " + table + " select * from " + snapshotPrefix + table);
+                }
+                sequences.forEach((name, next) ->
+                        jdbcTemplate.execute("alter sequence \"" + name + "\" restart with " + next));
+            });
+            resetIdOptimizers();
+        }
+        resetInProcessState();
+    }
+
+    public synchronized void clear() {
+        transactionTemplate.executeWithoutResult(status -> deleteAll());
+        resetInProcessState();
+    }
+
+    @PreDestroy
+    public synchronized void dropSnapshot() {
+        if (snapshotTaken) {
+            TABLES.forEach(table -> jdbcTemplate.execute("drop table if exists " + snapshotPrefix + table));
+        }
+    }
+
+    private void seed() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+    }
+
+    private void snapshot() {
+        for (String table : TABLES) {
+            jdbcTemplate.execute("drop table if exists " + snapshotPrefix + table);
+            jdbcTemplate.execute("create table " + snapshotPrefix + table + " as select * from " + table);
+        }
+        sequences.clear();
+        jdbcTemplate.query("select sequence_name, base_value from information_schema.sequences where sequence_schema = 'PUBLIC'",
+                (RowCallbackHandler) rs -> sequences.put(rs.getString(1), rs.getLong(2)));
+        // 스냅샷 시점의 시퀀스 값에서 다시 받아가도록 seed 가 메모리에 남긴 id 구간도 버린다.
+        resetIdOptimizers();
+    }
+
+    private void deleteAll() {
+        for (int i = TABLES.size() - 1; i >= 0; i--) {
+            jdbcTemplate.update("delete from " + TABLES.get(i));
+        }
+    }
+
+    /**
+     * JDBC 로 바꾼 행은 엔티티 이벤트가 없으므로 2차 캐시, username 색인, ETag 버전을 직접 맞춘다.
+     */
+    private void resetInProcessState() {
+        emf.getCache().evictAll();
+        usernameIndexLoader.load();
+        dataVersion.changed();
+    }
+
+    /**
+     * pooled optimizer 는 시퀀스에서 받은 id 구간을 메모리에 들고 있어서 시퀀스만 되돌리면 이미 받은 구간을 계속 쓴다.
+     * 공개 API 가 없으므로 상태 필드를 비워서 다음 id 를 시퀀스에서 새로 받게 한다.
+     */
+    private void resetIdOptimizers() {
+        emf.unwrap(SessionFactoryImplementor.class).getMappingMetamodel().forEachEntityDescriptor(persister -> {
+            if (persister.getIdentifierGenerator() instanceof SequenceStyleGenerator generator) {
+                Optimizer optimizer = generator.getOptimizer();
+                Field state = ReflectionUtils.findField(optimizer.getClass(), "noTenantState");
+                if (state == null) {
+                    throw new IllegalStateException("cannot reset id optimizer " + optimizer.getClass().getName());
+                }
+                ReflectionUtils.makeAccessible(state);
+                synchronized (optimizer) {
+                    ReflectionUtils.setField(state, optimizer, null);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.querydsl.support;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 테스트 메서드 실행 중(@BeforeEach 제외) 나간 SQL 문 수의 상한. -1 이면 검사하지 않는다.
+ * 상한을 넘으면 실제로 실행된 SQL 목록과 함께 실패한다.
+ *
+ * <pre>
+ * &#64;Test
+ * &#64;ExpectedQueries(select = 1)
+ * public void fetchJoinYes() { ... }
+ * </pre>
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(QueryCountExtension.class)
+public @interface ExpectedQueries {
+
+    int select() default -1;
+
+    int insert() default -1;
+
+    int update() default -1;
+
+    int delete() default -1;
+
+    int total() default -1;
+}
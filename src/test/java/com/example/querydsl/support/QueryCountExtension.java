@@ -0,0 +1,56 @@
+package com.example.querydsl.support;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+
+import java.util.List;
+
+/**
+ * @ExpectedQueries 의 상한을 검사한다. @BeforeEach 에서 데이터를 넣는 SQL 은 세지 않도록
+ * 테스트 메서드 바로 전후로 카운터를 초기화/검사한다.
+ */
+public class QueryCountExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        QueryCounter.start();
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        QueryCounter.stop();
+
+        ExpectedQueries expected = AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), ExpectedQueries.class)
+                .or(() -> AnnotationSupport.findAnnotation(context.getRequiredTestClass(), ExpectedQueries.class))
+                .orElse(null);
+        if (expected == null) {
+            return;
+        }
+
+        List<String> statements = QueryCounter.statements();
+        StringBuilder failures = new StringBuilder();
+        check(failures, "select", expected.select(), QueryCounter.count("select"));
+        check(failures, "insert", expected.insert(), QueryCounter.count("insert"));
+        check(failures, "update", expected.update(), QueryCounter.count("update"));
+        check(failures, "delete", expected.delete(), QueryCounter.count("delete"));
+        check(failures, "total", expected.total(), statements.size());
+
+        if (!failures.isEmpty()) {
+            StringBuilder message = new StringBuilder(failures);
+            message.append("executed statements:");
+            for (int i = 0; i < statements.size(); i++) {
+                message.append("\n[").append(i + 1).append("] ").append(statements.get(i));
+            }
+            throw new AssertionError(message.toString());
+        }
+    }
+
+    private void check(StringBuilder failures, String type, int limit, long actual) {
+        if (limit >= 0 && actual > limit) {
+            failures.append("expected at most ").append(limit).append(' ').append(type)
+                    .append(" statement(s) but was ").append(actual).append('\n');
+        }
+    }
+}
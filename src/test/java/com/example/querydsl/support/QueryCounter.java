@@ -0,0 +1,61 @@
+package com.example.querydsl.support;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * DataSource 프록시를 통해 실제로 실행된 SQL 을 모아둔다. 배치는 한 문장으로 센다.
+ * start() ~ stop() 사이에만 기록해서 검사하지 않는 테스트의 SQL 이 쌓이지 않게 한다.
+ */
+public class QueryCounter implements QueryExecutionListener {
+
+    private static final List<String> statements = new ArrayList<>();
+    private static boolean recording;
+
+    public static synchronized void start() {
+        statements.clear();
+        recording = true;
+    }
+
+    public static synchronized void stop() {
+        recording = false;
+    }
+
+    public static synchronized List<String> statements() {
+        return List.copyOf(statements);
+    }
+
+    public static long count(String type) {
+        return statements().stream().filter(sql -> typeOf(sql).equals(type)).count();
+    }
+
+    static String typeOf(String sql) {
+        String trimmed = sql.stripLeading().toLowerCase(Locale.ROOT);
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        return trimmed.substring(0, end);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        synchronized (QueryCounter.class) {
+            if (!recording) {
+                return;
+            }
+            for (QueryInfo queryInfo : queryInfoList) {
+                statements.add(queryInfo.getQuery());
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.querydsl.support;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 테스트 클래스 시작 시 DatasetFixture 의 표준 데이터(teamA, teamB, member1~4)를 스냅샷에서 복원하고,
+ * 클래스가 끝나면 지운다. 각 테스트는 @Transactional 롤백으로 격리되므로
+ * @Commit / @Rollback(false) 테스트 다음에만 다시 복원한다.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(SeededDatasetExtension.class)
+public @interface SeededDataset {
+}
@@ -0,0 +1,48 @@
+package com.example.querydsl.support;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+public class SeededDatasetExtension implements BeforeAllCallback, BeforeEachCallback, AfterEachCallback, AfterAllCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(SeededDatasetExtension.class);
+    private static final String DIRTY = "dirty";
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        fixture(context).restore();
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        if (context.getParent().orElseThrow().getStore(NAMESPACE).remove(DIRTY) != null) {
+            fixture(context).restore();
+        }
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        Rollback rollback = AnnotatedElementUtils.findMergedAnnotation(context.getRequiredTestMethod(), Rollback.class);
+        if (rollback == null) {
+            rollback = AnnotatedElementUtils.findMergedAnnotation(context.getRequiredTestClass(), Rollback.class);
+        }
+        if (rollback != null && !rollback.value()) {
+            context.getParent().orElseThrow().getStore(NAMESPACE).put(DIRTY, true);
+        }
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        fixture(context).clear();
+    }
+
+    private DatasetFixture fixture(ExtensionContext context) {
+        return SpringExtension.getApplicationContext(context).getBean(DatasetFixture.class);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.querydsl.telemetry;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConnectionTelemetryDataSourceTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    public void holdTimeIsTaggedByEndpoint() throws Exception {
+        long before = holdCount("/v1/members");
+
+        mockMvc.perform(get("/v1/members")).andExpect(status().isOk());
+
+        assertThat(holdCount("/v1/members")).isGreaterThan(before);
+        assertThat(meterRegistry.get("member.db.connection.hold").tag("endpoint", "/v1/members").timer().getId()
+                .getTag("open-in-view")).isEqualTo("true");
+        assertThat(meterRegistry.get("member.db.connection.wait").tag("endpoint", "/v1/members").timer().count())
+                .isPositive();
+    }
+
+    @Test
+    public void connectionsOutsideRequestsAreBackground() {
+        long before = holdCount(ConnectionTelemetryDataSource.BACKGROUND);
+
+        jdbcTemplate.queryForObject("select count(*) from member", Long.class);
+
+        assertThat(holdCount(ConnectionTelemetryDataSource.BACKGROUND)).isGreaterThan(before);
+    }
+
+    @Test
+    public void hikariPoolMetricsAreStillBound() throws Exception {
+        assertThat(dataSource.isWrapperFor(HikariDataSource.class) || dataSource instanceof HikariDataSource).isTrue();
+        assertThat(meterRegistry.find("hikaricp.connections.active").gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections.idle").gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections.pending").gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections.acquire").timer()).isNotNull();
+    }
+
+    private long holdCount(String endpoint) {
+        Timer timer = meterRegistry.find("member.db.connection.hold").tag("endpoint", endpoint).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.querydsl.telemetry;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberFetchPlan;
+import com.example.querydsl.repository.MemberRepository;
+import com.example.querydsl.repository.TeamRepository;
+import com.example.querydsl.support.ExpectedQueries;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lazy-load;DB_CLOSE_DELAY=-1",
+        "querydsl.lazy-load-detection.threshold=3"
+})
+@Transactional
+class LazyLoadDetectorTest {
+
+    static final String TEAM = Team.class.getName();
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    List<Long> teamIds = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        for (int i = 0; i < 4; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            em.persist(new Member("member" + i, i * 10, team));
+            teamIds.add(team.getId());
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void lazyLoadsInsideLoopAreReportedOnce() {
+        double before = warnings(TEAM);
+
+        for (Long teamId : teamIds) {
+            assertThat(em.getReference(Team.class, teamId).getName()).isNotNull();
+        }
+
+        assertThat(warnings(TEAM)).isEqualTo(before + 1);
+    }
+
+    @Test
+    public void batchFetchedProxiesAreNotCounted() {
+        double before = warnings(TEAM);
+
+        for (Member findMember : memberRepository.findAll()) {
+            assertThat(findMember.getTeam().getName()).isNotNull();
+        }
+
+        assertThat(warnings(TEAM)).isEqualTo(before);
+    }
+
+    @Test
+    @ExpectedQueries(select = 1)
+    public void fetchPlanLoadsTeamInSameQuery() {
+        List<Member> members = memberRepository.findAll(member.age.goe(0), MemberFetchPlan.WITH_TEAM);
+
+        assertThat(members).hasSize(4);
+        assertThat(members).allSatisfy(findMember -> assertThat(Hibernate.isInitialized(findMember.getTeam())).isTrue());
+    }
+
+    @Test
+    public void entityGraphsOnDerivedQueries() {
+        assertThat(memberRepository.findWithTeamByUsername("member1"))
+                .singleElement()
+                .satisfies(findMember -> assertThat(Hibernate.isInitialized(findMember.getTeam())).isTrue());
+
+        Team team = teamRepository.findWithMembersByName("team2").orElseThrow();
+        assertThat(Hibernate.isInitialized(team.getMembers())).isTrue();
+        assertThat(team.getMembers()).extracting("username").containsExactly("member2");
+    }
+
+    private double warnings(String role) {
+        Counter counter = meterRegistry.find("hibernate.lazy.n-plus-one").tag("role", role).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.querydsl.telemetry;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberJpaRepository;
+import com.example.querydsl.support.DatasetFixture;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:resource-accounting;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class ResourceAccountingTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    ResourceAccounting accounting;
+
+    @Autowired
+    ResourceUsageEndpoint endpoint;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("member" + i, i, teamA));
+            }
+        });
+        accounting.reset();
+    }
+
+    @AfterEach
+    public void after() {
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void requestsAreAccountedPerEndpointAndShape() throws Exception {
+        mockMvc.perform(get("/v1/members").param("teamName", "teamA").param("ageGoe", "10")).andExpect(status().isOk());
+        mockMvc.perform(get("/v1/members").param("teamName", "teamB").param("ageGoe", "20")).andExpect(status().isOk());
+        mockMvc.perform(get("/v1/members").param("username", "member1")).andExpect(status().isOk());
+
+        List<ResourceAccounting.Usage> requests = accounting.top(ResourceAccounting.REQUEST, ResourceAccounting.Order.ALLOCATED, 10);
+        assertThat(requests)
+                .extracting("name", "shape", "calls")
+                .containsExactlyInAnyOrder(
+                        tuple("GET /v1/members", "teamName,ageGoe", 2L),
+                        tuple("GET /v1/members", "username", 1L));
+        assertThat(requests).allSatisfy(usage -> {
+            assertThat(usage.allocatedBytes()).isPositive();
+            assertThat(usage.maxAllocatedBytes()).isLessThanOrEqualTo(usage.allocatedBytes());
+        });
+    }
+
+    @Test
+    public void onlyOutermostRepositoryCallIsAccounted() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeLoe(50);
+
+        memberJpaRepository.search(condition);
+
+        List<ResourceAccounting.Usage> repository = endpoint.top(ResourceAccounting.REPOSITORY, "cpu", null);
+        assertThat(repository)
+                .extracting("name", "shape", "calls")
+                .containsExactly(tuple("MemberJpaRepository.search", "ageLoe", 1L));
+        assertThat(repository.get(0).allocatedBytes()).isPositive();
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.querydsl.writebehind;
+
+import com.example.querydsl.config.WriteBehindProperties;
+import com.example.querydsl.dto.TeamStatsDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.ShardedMemberRepository;
+import com.example.querydsl.search.UsernameIndex;
+import com.example.querydsl.version.DataVersion;
+import com.example.querydsl.stats.TeamStatsService;
+import com.example.querydsl.support.DatasetFixture;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * flush 는 자기 트랜잭션으로 커밋하므로 롤백 테스트가 아니라 커밋된 데이터로 검증한다.
+ * 테스트 설정은 flush 주기가 길어서 flush() 를 직접 호출한다.
+ */
+@SpringBootTest
+class MemberWriteBehindServiceTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DatasetFixture datasetFixture;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MemberWriteBehindService memberWriteBehindService;
+
+    @Autowired
+    TeamStatsService teamStatsService;
+
+    @Autowired
+    UsernameIndex usernameIndex;
+
+    @Autowired
+    DataVersion dataVersion;
+
+    Long member1Id;
+    Long member2Id;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+
+            Member member1 = new Member("member1", 10, teamA);
+            Member member2 = new Member("member2", 20, teamA);
+            em.persist(member1);
+            em.persist(member2);
+            member1Id = member1.getId();
+            member2Id = member2.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        memberWriteBehindService.flush();
+        datasetFixture.clear();
+    }
+
+    @Test
+    public void repeatedUpdatesToSameMemberAreMerged() {
+        memberWriteBehindService.changeAge(member1Id, 20);
+        memberWriteBehindService.changeUsername(member1Id, "renamed");
+        CompletableFuture<Void> last = memberWriteBehindService.changeAge(member1Id, 30);
+        memberWriteBehindService.changeAge(member2Id, 40);
+
+        assertThat(memberWriteBehindService.pendingCount()).isEqualTo(2);
+        assertThat(last).isNotDone();
+
+        assertThat(memberWriteBehindService.flush()).isEqualTo(2);
+
+        assertThat(last).isCompleted();
+        assertThat(jdbcTemplate.queryForMap("select username, age from member where member_id = ?", member1Id))
+                .containsEntry("USERNAME", "renamed")
+                .containsEntry("AGE", 30);
+        assertThat(jdbcTemplate.queryForObject("select age from member where member_id = ?", Integer.class, member2Id))
+                .isEqualTo(40);
+    }
+
+    @Test
+    public void ageChangeMarksTeamStatsStale() {
+        assertThat(teamStatsService.findAll()).extracting(TeamStatsDto::getAgeSum).containsExactly(30L);
+
+        memberWriteBehindService.changeAge(member2Id, 50);
+        memberWriteBehindService.flush();
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from team_stats where stale = true", Long.class))
+                .isEqualTo(1);
+        assertThat(teamStatsService.findAll()).extracting(TeamStatsDto::getAgeSum).containsExactly(60L);
+    }
+
+    @Test
+    public void updateOfMissingMemberFails() {
+        CompletableFuture<Void> missing = memberWriteBehindService.changeAge(-1L, 10);
+        CompletableFuture<Void> present = memberWriteBehindService.changeAge(member1Id, 11);
+
+        memberWriteBehindService.flush();
+
+        assertThat(missing).isCompletedExceptionally();
+        assertThatThrownBy(missing::join).hasCauseInstanceOf(EmptyResultDataAccessException.class);
+        assertThat(present).isCompleted();
+    }
+
+    @Test
+    public void failingRowDoesNotBlockTheRest() {
+        // username 컬럼(varchar 255)보다 길어서 매번 실패한다.
+        CompletableFuture<Void> bad = memberWriteBehindService.changeUsername(member1Id, "x".repeat(300));
+        CompletableFuture<Void> good = memberWriteBehindService.changeAge(member2Id, 21);
+
+        assertThat(memberWriteBehindService.flush()).isEqualTo(2);
+
+        assertThat(bad).isCompletedExceptionally();
+        assertThatThrownBy(bad::join).hasCauseInstanceOf(DataIntegrityViolationException.class);
+        assertThat(good).isCompleted();
+        assertThat(memberWriteBehindService.pendingCount()).isZero();
+        assertThat(jdbcTemplate.queryForObject("select age from member where member_id = ?", Integer.class, member2Id))
+                .isEqualTo(21);
+    }
+
+    @Test
+    public void groupCommitWaitIsBounded(@Autowired ObjectProvider<ShardedMemberRepository> shardedMemberRepository) {
+        WriteBehindProperties properties = new WriteBehindProperties();
+        properties.setDurability(WriteBehindProperties.Durability.GROUP_COMMIT);
+        properties.setFlushInterval(Duration.ofMinutes(1));
+        properties.setGroupCommitTimeout(Duration.ofMillis(50));
+        MemberWriteBehindService groupCommit = new MemberWriteBehindService(jdbcTemplate, transactionManager, properties,
+                usernameIndex, dataVersion, shardedMemberRepository);
+        groupCommit.start();
+        try {
+            assertThatThrownBy(() -> groupCommit.changeAge(member1Id, 70)).isInstanceOf(QueryTimeoutException.class);
+            assertThat(groupCommit.pendingCount()).isEqualTo(1);
+        } finally {
+            groupCommit.stop();
+        }
+    }
+
+    @Test
+    public void groupCommitReturnsAfterScheduledFlush(@Autowired ObjectProvider<ShardedMemberRepository> shardedMemberRepository) throws Exception {
+        WriteBehindProperties properties = new WriteBehindProperties();
+        properties.setDurability(WriteBehindProperties.Durability.GROUP_COMMIT);
+        properties.setFlushInterval(Duration.ofMillis(20));
+        MemberWriteBehindService groupCommit = new MemberWriteBehindService(jdbcTemplate, transactionManager, properties,
+                usernameIndex, dataVersion, shardedMemberRepository);
+        groupCommit.start();
+        try {
+            CompletableFuture<Void> caller1 = CompletableFuture.runAsync(() -> groupCommit.changeAge(member1Id, 70));
+            CompletableFuture<Void> caller2 = CompletableFuture.runAsync(() -> groupCommit.changeAge(member2Id, 80));
+            CompletableFuture.allOf(caller1, caller2).get(5, TimeUnit.SECONDS);
+
+            assertThat(groupCommit.pendingCount()).isZero();
+            assertThat(jdbcTemplate.queryForList("select age from member order by member_id", Integer.class))
+                    .containsExactly(70, 80);
+        } finally {
+            groupCommit.stop();
+        }
+    }
+}